@@ -0,0 +1,87 @@
+package com.rvega.dreamshops.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes read-only transactions to read replicas when {@code datasource.replica.urls} is set.
+ * Without it, the application uses the single data source that Spring Boot configures from {@code spring.datasource}.
+ * <p>
+ * The primary pool is configured by {@code spring.datasource}; each replica gets its own pool with the same
+ * credentials, unless replica credentials are set. Flyway migrates the primary only, as replicas follow it.
+ *
+ * @author rvega
+ */
+@Configuration
+@ConditionalOnProperty("datasource.replica.urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            @Value("${datasource.replica.urls}") List<String> urls,
+            @Value("${datasource.replica.username:}") String username,
+            @Value("${datasource.replica.password:}") String password,
+            @Value("${datasource.replica.connectionTimeoutInMillis:2000}") long connectionTimeoutInMillis,
+            @Value("${datasource.replica.healthCheckIntervalInSeconds:5}") long healthCheckIntervalInSeconds,
+            @Value("${datasource.replica.stickyReadsInSeconds:5}") long stickyReadsInSeconds) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(url)
+                    .username(username.isEmpty() ? properties.determineUsername() : username)
+                    .password(username.isEmpty() ? properties.determinePassword() : password)
+                    .build();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            // A replica that does not answer quickly is skipped in favor of the primary
+            replica.setConnectionTimeout(connectionTimeoutInMillis);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primaryDataSource, replicas,
+                Duration.ofSeconds(stickyReadsInSeconds), ReadReplicaConfig::currentUser);
+        dataSource.startHealthChecks(Duration.ofSeconds(healthCheckIntervalInSeconds));
+        return dataSource;
+    }
+
+    /**
+     * The data source used by JPA, Flyway and JDBC. Connections are only taken from the router at the first
+     * statement, once the transaction is known to be read-only or not.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,198 @@
+package com.rvega.dreamshops.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A data source that sends read-only transactions to read replicas and everything else to the primary database.
+ * <p>
+ * Replicas are used in turn. A replica that fails to hand out a connection, or fails a health check, is skipped
+ * until a later health check finds it reachable again; when no replica is usable, reads go to the primary.
+ * <p>
+ * Replicas lag behind the primary. So that users see their own changes, the reads of a user who committed a write
+ * go to the primary for a short while afterwards. This applies within this application instance only.
+ * Reads whose results are cached or versioned in memory run inside {@link #readFromPrimary(Supplier)}, so that a
+ * lagging replica cannot fill a cache with rows older than the version it is stored under.
+ * <p>
+ * The routing decision is taken when a connection is requested, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: transaction managers ask for the
+ * connection before they mark the transaction read-only, and the proxy defers the request to the first statement.
+ *
+ * @author rvega
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+    private static final int HEALTH_CHECK_TIMEOUT_IN_SECONDS = 2;
+    private static final ThreadLocal<Boolean> PRIMARY_READS = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Supplier<String> currentUser;
+    private final Cache<String, Boolean> recentWriters;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * @param primary     The primary database, for writes and for reads that cannot go to a replica.
+     * @param replicas    The read replicas.
+     * @param stickiness  How long the reads of a user go to the primary after the user committed a write.
+     *                    Zero disables it.
+     * @param currentUser Supplies the name of the current user, or null for anonymous requests, which are never sticky.
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration stickiness,
+                                      Supplier<String> currentUser) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.currentUser = currentUser;
+        this.recentWriters = stickiness.isZero() ? null : Caffeine.newBuilder().expireAfterWrite(stickiness).build();
+    }
+
+    /**
+     * Checks the replicas in the background at a fixed interval.
+     *
+     * @param interval The time between two checks.
+     */
+    public void startHealthChecks(Duration interval) {
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks each replica as usable or not, depending on whether it hands out a valid connection.
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(HEALTH_CHECK_TIMEOUT_IN_SECONDS);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.info("Read replica {} is {}", replicas.indexOf(replica) + 1, healthy ? "back up" : "down");
+                replica.healthy = healthy;
+            }
+        }
+    }
+
+    /**
+     * Runs reads on the primary even inside a read-only transaction.
+     * A transaction keeps the connection of its first statement, so the reads must start before it.
+     *
+     * @param reads The reads to run.
+     * @return The result of the reads.
+     */
+    public static <T> T readFromPrimary(Supplier<T> reads) {
+        boolean nested = PRIMARY_READS.get();
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (!nested) {
+                PRIMARY_READS.remove();
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection getConnection(ConnectionFactory factory) throws SQLException {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (readOnly && !PRIMARY_READS.get() && !isRecentWriter()) {
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+                if (replica.healthy) {
+                    try {
+                        return factory.get(replica.dataSource);
+                    } catch (SQLException e) {
+                        log.warn("Read replica {} is down, reading from the primary: {}", replicas.indexOf(replica) + 1, e.getMessage());
+                        replica.healthy = false;
+                    }
+                }
+            }
+        } else if (!readOnly && TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Only writes start or renew the stickiness; the reads of a sticky user must not prolong it
+            rememberWriter();
+        }
+        return factory.get(primary);
+    }
+
+    private boolean isRecentWriter() {
+        if (recentWriters == null) {
+            return false;
+        }
+        String user = currentUser.get();
+        return user != null && recentWriters.getIfPresent(user) != null;
+    }
+
+    /**
+     * Makes the reads of the current user sticky to the primary once the current read-write transaction commits.
+     */
+    private void rememberWriter() {
+        String user = recentWriters != null ? currentUser.get() : null;
+        if (user != null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentWriters.put(user, Boolean.TRUE);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the health checks and closes the replica pools. The primary is left to its owner.
+     */
+    @Override
+    public void close() throws Exception {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionFactory {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+}
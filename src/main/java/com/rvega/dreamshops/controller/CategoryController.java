@@ -5,10 +5,12 @@ import com.rvega.dreamshops.exceptions.AlreadyExistsException;
 import com.rvega.dreamshops.exceptions.ResourceNotFoundException;
 import com.rvega.dreamshops.model.Category;
 import com.rvega.dreamshops.response.ApiResponse;
+import com.rvega.dreamshops.service.catalog.CatalogVersion;
 import com.rvega.dreamshops.service.category.ICategoryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -28,16 +30,28 @@ public class CategoryController {
      */
     private final ICategoryService categoryService;
 
+    /**
+     * Version counters of the catalog, used as ETags.
+     */
+    private final CatalogVersion catalogVersion;
+
     /**
      * Retrieves all categories.
+     * The response carries the version of the categories as its ETag, and a request whose If-None-Match holds
+     * the current version is answered with 304 without a body.
      *
+     * @param request The current request, holding its conditional headers.
      * @return ResponseEntity containing an ApiResponse with the list of categories and an HTTP status code.
      */
     @GetMapping("/all")
-    public ResponseEntity<ApiResponse> getAllCategories() {
+    public ResponseEntity<ApiResponse> getAllCategories(WebRequest request) {
+        String eTag = catalogVersion.categoriesETag();
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(NOT_MODIFIED).eTag(eTag).build();
+        }
         try {
             List<Category> categories = categoryService.getAllCategories();
-            return ResponseEntity.ok(new ApiResponse("Found!", categories));
+            return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("Found!", categories));
         } catch (Exception e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("Error:", INTERNAL_SERVER_ERROR));
         }
@@ -1,24 +1,46 @@
 package com.rvega.dreamshops.controller;
 
 import com.rvega.dreamshops.dto.ImageDto;
+import com.rvega.dreamshops.enums.ImageSize;
 import com.rvega.dreamshops.exceptions.ResourceNotFoundException;
+import com.rvega.dreamshops.exceptions.UploadLimitExceededException;
 import com.rvega.dreamshops.model.Image;
 import com.rvega.dreamshops.response.ApiResponse;
 import com.rvega.dreamshops.service.image.IImageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.apache.catalina.Globals;
+import org.apache.catalina.connector.CoyoteOutputStream;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.sql.SQLException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
+import static org.springframework.http.HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 @RequiredArgsConstructor
 @RestController
@@ -31,13 +53,15 @@ public class ImageController {
      * @param files A list of image files to upload.
      * @param productId The ID of the product to associate the images with.
      * @return A ResponseEntity containing a success message and a list of uploaded image DTOs,
-     * or an error message if the upload fails.
+     * a 503 with a Retry-After header if too many uploads are in progress, or an error message if the upload fails.
      */
     @PostMapping("/upload")
     public ResponseEntity<ApiResponse> saveImages(@RequestParam List<MultipartFile> files, @RequestParam Long productId) {
         try {
             List<ImageDto> imageDtos = imageService.saveImages(productId, files);
             return ResponseEntity.ok(new ApiResponse("Upload success!", imageDtos));
+        } catch (UploadLimitExceededException e) {
+            return uploadLimitExceeded(e);
         } catch (Exception e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("Upload failed!", e.getMessage()));
         }
@@ -45,38 +69,145 @@ public class ImageController {
 
     /**
      * Endpoint to download an image by its ID.
+     * A single byte range can be requested with a {@code Range} header, answered with 206 Partial Content, so that
+     * clients can resume downloads and load images progressively. Multiple ranges are answered with the whole file.
+     * The most downloaded files are written from the off-heap image cache. Others are written to the connection by the
+     * kernel, with sendfile when Tomcat supports it for the connection, or else with {@link FileChannel#transferTo},
+     * so they are never copied into a heap byte array.
+     * Requests with a matching {@code If-None-Match} or {@code If-Modified-Since} header get a 304 without any file
+     * being read.
      * @param imageId The ID of the image to download.
-     * @return A ResponseEntity containing the image as a resource, or an error response if the image is not found.
-     * @throws SQLException If there is an issue reading the image data from the database.
+     * @param size The resized variant to download, such as THUMBNAIL for listings, or none for the original image.
+     * @param version The hash of the image file, as appended to the download URL of image DTOs. Responses to URLs
+     *                with the current hash may be cached forever; others are cached but revalidated on every use.
+     * @param request The current request, used to read the requested range and to hand the file over to Tomcat.
+     * @param response The response the image is written to.
+     * @throws IOException If the image file cannot be read or the response cannot be written.
      */
     @GetMapping("/image/download/{imageId}")
-    public ResponseEntity<Resource> downloadImage(@PathVariable Long imageId) throws SQLException {
-        Image image = imageService.getImageById(imageId);
-        ByteArrayResource resource = new ByteArrayResource(image.getImage().getBytes(1, (int) image.getImage().length()));
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(image.getFileType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + image.getFileName() + "\"")
-                .body(resource);
+    public void downloadImage(@PathVariable Long imageId, @RequestParam(required = false) ImageSize size,
+                              @RequestParam(name = "v", required = false) String version,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Image image;
+        try {
+            image = imageService.getImageById(imageId);
+            if (image.getContentHash() == null) {
+                // Images still stored as a blob are moved to the image storage first, which gives them their hash
+                imageService.getImageContent(image, null);
+            }
+        } catch (ResourceNotFoundException e) {
+            response.sendError(NOT_FOUND.value(), e.getMessage());
+            return;
+        }
+        // Files are addressed by the hash of their content, which makes it a strong entity tag
+        String eTag = "\"" + image.getContentHash() + (size == null ? "" : "-" + size.name().toLowerCase()) + "\"";
+        long lastModified = image.getLastModified() == null ? -1 : image.getLastModified().toInstant(ZoneOffset.UTC).toEpochMilli();
+        // A URL versioned with the current hash always designates the same file; others must be revalidated
+        CacheControl cacheControl = image.getContentHash().equals(version)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache().cachePublic();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        // Sets the ETag and Last-Modified headers, and answers 304 before the file is looked up
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            return;
+        }
+
+        Resource content;
+        try {
+            content = imageService.getImageContent(image, size);
+        } catch (ResourceNotFoundException e) {
+            response.sendError(NOT_FOUND.value(), e.getMessage());
+            return;
+        }
+        long length = content.contentLength();
+        // Variants are named with the extension of their format; originals, and images served as they are, have none
+        response.setContentType(MediaTypeFactory.getMediaType(content).map(MediaType::toString).orElse(image.getFileType()));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + image.getFileName() + "\"");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // A range of another version of the file is ignored and the whole current file is sent
+        if (range != null && (ifRange == null || ifRange.equals(eTag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    // HttpRange does not reject a range that starts at or past the end of the file
+                    if (start >= length || start > end) {
+                        throw new IllegalArgumentException("Range starts past the end of the file");
+                    }
+                    response.setStatus(PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+        response.setContentLengthLong(end - start + 1);
+        send(content, start, end - start + 1, request, response);
+    }
+
+    /**
+     * Writes part of a file to the response, without reading it into the heap.
+     * Files held by the image cache are written straight from their direct buffer.
+     */
+    private void send(Resource content, long start, long count, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        ByteBuffer cached = imageService.getCachedImageContent(content);
+        if (cached != null) {
+            ByteBuffer part = cached.slice((int) start, (int) count);
+            if (response.getOutputStream() instanceof CoyoteOutputStream out) {
+                out.write(part);
+            } else {
+                Channels.newChannel(response.getOutputStream()).write(part);
+            }
+            return;
+        }
+        if (content.isFile() && Boolean.TRUE.equals(request.getAttribute(Globals.SENDFILE_SUPPORTED_ATTR))) {
+            // Tomcat sends the file once the request returns; it is not available over TLS
+            request.setAttribute(Globals.SENDFILE_FILENAME_ATTR, content.getFile().getAbsolutePath());
+            request.setAttribute(Globals.SENDFILE_FILE_START_ATTR, start);
+            request.setAttribute(Globals.SENDFILE_FILE_END_ATTR, start + count);
+            return;
+        }
+        try (ReadableByteChannel in = content.readableChannel()) {
+            if (in instanceof FileChannel file) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                for (long sent = 0; sent < count; ) {
+                    sent += file.transferTo(start + sent, count - sent, out);
+                }
+            } else {
+                // Other storages are copied through a fixed-size buffer
+                try (InputStream stream = Channels.newInputStream(in)) {
+                    StreamUtils.copyRange(stream, response.getOutputStream(), start, start + count - 1);
+                }
+            }
+        }
     }
 
     /**
      * Endpoint to update an image by its ID.
      * @param imageId The ID of the image to update.
      * @param file The new image file to replace the existing image.
-     * @return A ResponseEntity with a success message if the update is successful, or an error message if it fails.
+     * @return A ResponseEntity with a success message if the update is successful, a 503 with a Retry-After header
+     * if too many uploads are in progress, or an error message if it fails.
      */
     @PutMapping("/image/{imageId}/update")
     public ResponseEntity<ApiResponse> updateImage(@PathVariable Long imageId, @RequestBody MultipartFile file) {
         try {
-            Image image = imageService.getImageById(imageId);
-            if (image != null) {
-                imageService.updateImage(file, imageId);
-                return ResponseEntity.ok(new ApiResponse("Update success!", null));
-            }
+            imageService.updateImage(file, imageId);
+            return ResponseEntity.ok(new ApiResponse("Update success!", null));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
+        } catch (UploadLimitExceededException e) {
+            return uploadLimitExceeded(e);
         }
-        return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("Update failed!", INTERNAL_SERVER_ERROR));
     }
 
     /**
@@ -87,14 +218,27 @@ public class ImageController {
     @DeleteMapping("/image/{imageId}/delete")
     public ResponseEntity<ApiResponse> deleteImage(@PathVariable Long imageId) {
         try {
-            Image image = imageService.getImageById(imageId);
-            if (image != null) {
-                imageService.deleteImageById(imageId);
-                return ResponseEntity.ok(new ApiResponse("Delete success!", null));
-            }
+            imageService.deleteImageById(imageId);
+            return ResponseEntity.ok(new ApiResponse("Delete success!", null));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
         }
-        return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("Delete failed!", INTERNAL_SERVER_ERROR));
+    }
+
+    /**
+     * Fetch the hit and miss counters of the in-memory cache of image files.
+     * Only accessible to users with the ROLE_ADMIN.
+     * @return A ResponseEntity containing the counters of the image cache.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse> getCacheStats() {
+        return ResponseEntity.ok(new ApiResponse("success", imageService.getCacheStats()));
+    }
+
+    private static ResponseEntity<ApiResponse> uploadLimitExceeded(UploadLimitExceededException e) {
+        return ResponseEntity.status(SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterInSeconds()))
+                .body(new ApiResponse(e.getMessage(), null));
     }
 }
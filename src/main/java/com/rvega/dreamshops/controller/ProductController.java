@@ -1,20 +1,41 @@
 package com.rvega.dreamshops.controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rvega.dreamshops.dto.BulkProductUpdateResultDto;
 import com.rvega.dreamshops.dto.ProductDto;
+import com.rvega.dreamshops.dto.ProductImportResultDto;
+import com.rvega.dreamshops.dto.ProductPageDto;
+import com.rvega.dreamshops.dto.ProductSearchDto;
+import com.rvega.dreamshops.enums.ProductFacet;
+import com.rvega.dreamshops.enums.ProductImportFormat;
 import com.rvega.dreamshops.exceptions.AlreadyExistsException;
 import com.rvega.dreamshops.exceptions.ResourceNotFoundException;
 import com.rvega.dreamshops.model.Product;
 import com.rvega.dreamshops.request.AddProductRequest;
+import com.rvega.dreamshops.request.BulkProductUpdateRequest;
+import com.rvega.dreamshops.request.ProductPageRequest;
 import com.rvega.dreamshops.request.ProductUpdateRequest;
 import com.rvega.dreamshops.response.ApiResponse;
+import com.rvega.dreamshops.service.cache.SecondLevelCacheStats;
+import com.rvega.dreamshops.service.catalog.CatalogVersion;
 import com.rvega.dreamshops.service.product.IProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.springframework.http.HttpStatus.*;
 
@@ -23,29 +44,44 @@ import static org.springframework.http.HttpStatus.*;
 @RequestMapping("${api.prefix}/products")
 public class ProductController {
     private final IProductService productService;
+    private final ObjectMapper objectMapper;
+    private final CatalogVersion catalogVersion;
+    private final SecondLevelCacheStats secondLevelCacheStats;
 
     /**
-     * Fetch all products.
-     * @return A ResponseEntity containing a list of all products as DTOs and a success message.
+     * Fetch one page of all products.
+     * @param page The cursor, size and sort order of the page to fetch.
+     * @return A ResponseEntity containing a page of products as DTOs with the cursor of the next page and a success message,
+     * or an error message if the cursor is invalid.
      */
     @GetMapping("/all")
-    public ResponseEntity<ApiResponse> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
-        return ResponseEntity.ok(new ApiResponse("success", convertedProducts));
+    public ResponseEntity<ApiResponse> getAllProducts(ProductPageRequest page) {
+        try {
+            ProductPageDto products = productService.getAllProducts(page);
+            return ResponseEntity.ok(new ApiResponse("success", products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
+        }
     }
 
     /**
      * Fetch a product by its ID.
+     * The response carries the version of the product as its ETag, and a request whose If-None-Match holds
+     * the current version is answered with 304 without reading the product.
      * @param productId The ID of the product to retrieve.
-     * @return A ResponseEntity containing the product as a DTO if found, or an error message if not found.
+     * @param request The current request, holding its conditional headers.
+     * @return A ResponseEntity containing the product as a DTO if found, an empty 304 response if the client's copy
+     * is current, or an error message if not found.
      */
     @GetMapping("product/{productId}/product")
-    public ResponseEntity<ApiResponse> getProductById(@PathVariable Long productId) {
+    public ResponseEntity<ApiResponse> getProductById(@PathVariable Long productId, WebRequest request) {
+        String eTag = catalogVersion.productETag(productId);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(NOT_MODIFIED).eTag(eTag).build();
+        }
         try {
-            Product product = productService.getProductById(productId);
-            ProductDto productDto = productService.convertToDto(product);
-            return ResponseEntity.ok(new ApiResponse("success", productDto));
+            ProductDto productDto = productService.getProductDtoById(productId);
+            return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("success", productDto));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
         }
@@ -56,7 +92,7 @@ public class ProductController {
      * Only accessible to users with the ROLE_ADMIN.
      * @param product The product data to add.
      * @return A ResponseEntity containing the added product as a DTO and a success message,
-     * or an error message if the product already exists.
+     * or an error message if the product already exists or its price is missing or negative.
      */
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/add")
@@ -67,6 +103,29 @@ public class ProductController {
             return ResponseEntity.ok(new ApiResponse("Add product success!", productDto));
         } catch (AlreadyExistsException e) {
             return ResponseEntity.status(CONFLICT).body(new ApiResponse(e.getMessage(), null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
+        }
+    }
+
+    /**
+     * Import products in bulk from a CSV or NDJSON request body, streamed row by row.
+     * Rows duplicating an existing product or an earlier row, and rows that cannot be read, are skipped and reported.
+     * Only accessible to users with the ROLE_ADMIN.
+     * @param contentType The content type of the body: text/csv or application/x-ndjson.
+     * @param body The rows to import. CSV uploads start with a header row naming the columns.
+     * @return A ResponseEntity containing the number of imported, duplicate and invalid rows and the rows not imported,
+     * or an error message if the upload format is not supported or the CSV header is incomplete.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ApiResponse> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        try {
+            ProductImportFormat format = ProductImportFormat.of(MediaType.parseMediaType(contentType));
+            ProductImportResultDto result = productService.importProducts(body, format);
+            return ResponseEntity.ok(new ApiResponse("Import finished!", result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         }
     }
 
@@ -76,7 +135,7 @@ public class ProductController {
      * @param request The updated product data.
      * @param productId The ID of the product to update.
      * @return A ResponseEntity containing the updated product as a DTO and a success message,
-     * or an error message if the product is not found.
+     * or an error message if the product is not found or the price is missing or negative.
      */
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("/product/{productId}/update")
@@ -87,6 +146,27 @@ public class ProductController {
             return ResponseEntity.ok(new ApiResponse("Update product success!", productDto));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(NOT_FOUND).body(new ApiResponse(e.getMessage(), null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
+        }
+    }
+
+    /**
+     * Update the price and inventory of many products at once, for example a price list or stock sync.
+     * The changes are applied in one transaction without loading the products.
+     * Only accessible to users with the ROLE_ADMIN.
+     * @param requests The changes. A price or inventory left null keeps its current value.
+     * @return A ResponseEntity containing the number of updated products and the IDs that matched no product,
+     * or an error message if a change is invalid, in which case nothing is updated.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk-update")
+    public ResponseEntity<ApiResponse> updateProductsInBulk(@RequestBody List<BulkProductUpdateRequest> requests) {
+        try {
+            BulkProductUpdateResultDto result = productService.updateProductsInBulk(requests);
+            return ResponseEntity.ok(new ApiResponse("Bulk update finished!", result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         }
     }
 
@@ -112,18 +192,20 @@ public class ProductController {
      * Fetch products by brand and name.
      * @param brandName The brand of the products to search.
      * @param productName The name of the products to search.
-     * @return A ResponseEntity containing a list of matching products as DTOs,
+     * @param page The cursor, size and sort order of the page to fetch.
+     * @return A ResponseEntity containing a page of matching products as DTOs with the cursor of the next page,
      * or a message if no products are found.
      */
     @GetMapping("/products/by/brand-and-name")
-    public ResponseEntity<ApiResponse> getProductByBrandAndName(@RequestParam String brandName, @RequestParam String productName) {
+    public ResponseEntity<ApiResponse> getProductByBrandAndName(@RequestParam String brandName, @RequestParam String productName, ProductPageRequest page) {
         try {
-            List<Product> products = productService.getProductsByBrandAndName(brandName, productName);
-            if (products.isEmpty()) {
+            ProductPageDto products = productService.getProductsByBrandAndName(brandName, productName, page);
+            if (products.getProducts().isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No products found", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
-            return ResponseEntity.ok(new ApiResponse("success", convertedProducts));
+            return ResponseEntity.ok(new ApiResponse("success", products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse(e.getMessage(), null));
         }
@@ -133,18 +215,20 @@ public class ProductController {
      * Fetch products by category and brand.
      * @param category The category of the products to search.
      * @param brand The brand of the products to search.
-     * @return A ResponseEntity containing a list of matching products as DTOs,
+     * @param page The cursor, size and sort order of the page to fetch.
+     * @return A ResponseEntity containing a page of matching products as DTOs with the cursor of the next page,
      * or a message if no products are found.
      */
     @GetMapping("/products/by/category-and-brand")
-    public ResponseEntity<ApiResponse> getProductByCategoryAndBrand(@RequestParam String category, @RequestParam String brand) {
+    public ResponseEntity<ApiResponse> getProductByCategoryAndBrand(@RequestParam String category, @RequestParam String brand, ProductPageRequest page) {
         try {
-            List<Product> products = productService.getProductsByCategoryAndBrand(category, brand);
-            if (products.isEmpty()) {
+            ProductPageDto products = productService.getProductsByCategoryAndBrand(category, brand, page);
+            if (products.getProducts().isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No products found", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
-            return ResponseEntity.ok(new ApiResponse("success", convertedProducts));
+            return ResponseEntity.ok(new ApiResponse("success", products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("error", e.getMessage()));
         }
@@ -153,18 +237,20 @@ public class ProductController {
     /**
      * Fetch products by name.
      * @param name The name of the products to search.
-     * @return A ResponseEntity containing a list of matching products as DTOs,
+     * @param page The cursor, size and sort order of the page to fetch.
+     * @return A ResponseEntity containing a page of matching products as DTOs with the cursor of the next page,
      * or a message if no products are found.
      */
     @GetMapping("/products/{name}/products")
-    public ResponseEntity<ApiResponse> getProductByName(@PathVariable String name) {
+    public ResponseEntity<ApiResponse> getProductByName(@PathVariable String name, ProductPageRequest page) {
         try {
-            List<Product> products = productService.getProductsByName(name);
-            if (products.isEmpty()) {
+            ProductPageDto products = productService.getProductsByName(name, page);
+            if (products.getProducts().isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No products found", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
-            return ResponseEntity.ok(new ApiResponse("success", convertedProducts));
+            return ResponseEntity.ok(new ApiResponse("success", products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(new ApiResponse("error", e.getMessage()));
         }
@@ -173,18 +259,20 @@ public class ProductController {
     /**
      * Fetch products by brand.
      * @param brand The brand of the products to search.
-     * @return A ResponseEntity containing a list of matching products as DTOs,
+     * @param page The cursor, size and sort order of the page to fetch.
+     * @return A ResponseEntity containing a page of matching products as DTOs with the cursor of the next page,
      * or a message if no products are found.
      */
     @GetMapping("/product/by-brand")
-    public ResponseEntity<ApiResponse> findProductByBrand(@RequestParam String brand) {
+    public ResponseEntity<ApiResponse> findProductByBrand(@RequestParam String brand, ProductPageRequest page) {
         try {
-            List<Product> products = productService.getProductsByBrand(brand);
-            if (products.isEmpty()) {
+            ProductPageDto products = productService.getProductsByBrand(brand, page);
+            if (products.getProducts().isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No products found", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
-            return ResponseEntity.ok(new ApiResponse("success", convertedProducts));
+            return ResponseEntity.ok(new ApiResponse("success", products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.ok(new ApiResponse(e.getMessage(), null));
         }
@@ -192,24 +280,84 @@ public class ProductController {
 
     /**
      * Fetch products by category.
+     * The response carries the version of the catalog as its ETag, and a request whose If-None-Match holds
+     * the current version is answered with 304 without reading the products.
      * @param category The category of the products to search.
-     * @return A ResponseEntity containing a list of matching products as DTOs,
-     * or a message if no products are found.
+     * @param page The cursor, size and sort order of the page to fetch.
+     * @param request The current request, holding its conditional headers.
+     * @return A ResponseEntity containing a page of matching products as DTOs with the cursor of the next page,
+     * an empty 304 response if the client's copy is current, or a message if no products are found.
      */
     @GetMapping("/product/{category}/all/products")
-    public ResponseEntity<ApiResponse> findProductByCategory(@PathVariable String category) {
+    public ResponseEntity<ApiResponse> findProductByCategory(@PathVariable String category, ProductPageRequest page, WebRequest request) {
+        String eTag = catalogVersion.catalogETag();
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(NOT_MODIFIED).eTag(eTag).build();
+        }
         try {
-            List<Product> products = productService.getProductsByCategory(category);
-            if (products.isEmpty()) {
+            ProductPageDto products = productService.getProductsByCategory(category, page);
+            if (products.getProducts().isEmpty()) {
                 return ResponseEntity.status(NOT_FOUND).body(new ApiResponse("No products found", null));
             }
-            List<ProductDto> convertedProducts = productService.getConvertedProducts(products);
-            return ResponseEntity.ok(new ApiResponse("success", convertedProducts));
+            return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("success", products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(BAD_REQUEST).body(new ApiResponse(e.getMessage(), null));
         } catch (Exception e) {
             return ResponseEntity.ok(new ApiResponse(e.getMessage(), null));
         }
     }
 
+    /**
+     * Search products whose name, brand, category or description match a free-text query, narrowed by facet filters.
+     * Query tokens match words they are a prefix of, and results are ranked by where they matched.
+     * Several values of one facet match any of them; filters on different facets must all match.
+     * @param q The free-text query. When omitted, every product matches.
+     * @param brand The brands to filter by.
+     * @param category The category names to filter by.
+     * @param price The price buckets to filter by, such as "25-50" or "1000+".
+     * @param page The zero-based number of the page to fetch.
+     * @param size The size of the page.
+     * @return A ResponseEntity containing a page of ranked products as DTOs, the total number of matches
+     * and the number of matches per brand, category and price bucket.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse> searchProducts(@RequestParam(required = false) String q,
+                                                      @RequestParam(required = false) List<String> brand,
+                                                      @RequestParam(required = false) List<String> category,
+                                                      @RequestParam(required = false) List<String> price,
+                                                      @RequestParam(defaultValue = "0") int page,
+                                                      @RequestParam(defaultValue = "20") int size) {
+        Map<ProductFacet, List<String>> filters = new EnumMap<>(ProductFacet.class);
+        filters.put(ProductFacet.BRAND, brand);
+        filters.put(ProductFacet.CATEGORY, category);
+        filters.put(ProductFacet.PRICE, price);
+        ProductSearchDto result = productService.searchProducts(q, filters, page, size);
+        return ResponseEntity.ok(new ApiResponse("success", result));
+    }
+
+    /**
+     * Export the whole product catalog as newline-delimited JSON, one product DTO per line.
+     * Products are written to the response as they are read from the database, so the first bytes arrive
+     * before the catalog has been read and memory use does not depend on its size.
+     * @return A ResponseEntity streaming every product as a DTO, in ID order.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                productService.exportProducts(product -> {
+                    try {
+                        objectMapper.writeValue(generator, product);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     /**
      * Count products by brand and name.
      * @param brand The brand of the products to count.
@@ -225,4 +373,28 @@ public class ProductController {
             return ResponseEntity.ok(new ApiResponse(e.getMessage(), null));
         }
     }
+
+    /**
+     * Fetch the hit, miss and eviction counters of the product caches.
+     * Only accessible to users with the ROLE_ADMIN.
+     * @return A ResponseEntity containing the counters of each product cache.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse> getCacheStats() {
+        return ResponseEntity.ok(new ApiResponse("success", productService.getCacheStats()));
+    }
+
+    /**
+     * Fetch the hit, miss and put counters of the Hibernate second-level and query cache regions,
+     * which hold products, categories, roles and the roles of each user.
+     * The counters are only kept when Hibernate statistics are enabled, otherwise the list is empty.
+     * Only accessible to users with the ROLE_ADMIN.
+     * @return A ResponseEntity containing the counters of each cache region.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/cache/second-level/stats")
+    public ResponseEntity<ApiResponse> getSecondLevelCacheStats() {
+        return ResponseEntity.ok(new ApiResponse("success", secondLevelCacheStats.getStats()));
+    }
 }
@@ -0,0 +1,22 @@
+package com.rvega.dreamshops.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object for the report of a bulk price and inventory update.
+ */
+@Data
+public class BulkProductUpdateResultDto {
+    /**
+     * The number of products updated.
+     */
+    private int updated;
+
+    /**
+     * The IDs of the changes that matched no product, in request order.
+     */
+    private List<Long> notFound = new ArrayList<>();
+}
@@ -0,0 +1,41 @@
+package com.rvega.dreamshops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Data Transfer Object exposing the counters of an in-process cache, used to size it.
+ */
+@Data
+@AllArgsConstructor
+public class CacheStatsDto {
+    /**
+     * The name of the cache.
+     */
+    private String name;
+
+    /**
+     * The approximate number of entries currently held.
+     */
+    private long size;
+
+    /**
+     * The number of lookups served from the cache.
+     */
+    private long hitCount;
+
+    /**
+     * The number of lookups that had to load the value.
+     */
+    private long missCount;
+
+    /**
+     * The number of entries removed to respect the size bound or the time to live.
+     */
+    private long evictionCount;
+
+    /**
+     * The ratio of hits to lookups, between 0 and 1.
+     */
+    private double hitRate;
+}
@@ -0,0 +1,33 @@
+package com.rvega.dreamshops.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object for the report of a bulk product import.
+ */
+@Data
+public class ProductImportResultDto {
+    /**
+     * The number of products created.
+     */
+    private int imported;
+
+    /**
+     * The number of rows skipped because a product with the same name and brand already exists,
+     * in the catalog or earlier in the upload.
+     */
+    private int duplicates;
+
+    /**
+     * The number of rows rejected because they could not be read or are incomplete.
+     */
+    private int invalid;
+
+    /**
+     * The duplicate and invalid rows, in upload order.
+     */
+    private List<ProductImportRowDto> rejected = new ArrayList<>();
+}
@@ -0,0 +1,31 @@
+package com.rvega.dreamshops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Data Transfer Object for a row of a bulk product import that was not imported.
+ */
+@Data
+@AllArgsConstructor
+public class ProductImportRowDto {
+    /**
+     * The one-based number of the row in the upload, not counting the CSV header.
+     */
+    private int row;
+
+    /**
+     * The name of the product, if it could be read.
+     */
+    private String name;
+
+    /**
+     * The brand of the product, if it could be read.
+     */
+    private String brand;
+
+    /**
+     * Why the row was not imported.
+     */
+    private String reason;
+}
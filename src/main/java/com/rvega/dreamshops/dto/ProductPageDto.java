@@ -0,0 +1,23 @@
+package com.rvega.dreamshops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for one page of a product listing.
+ */
+@Data
+@AllArgsConstructor
+public class ProductPageDto {
+    /**
+     * The products of the page.
+     */
+    private List<ProductDto> products;
+
+    /**
+     * The opaque token to request the next page with, or null if this is the last page.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,40 @@
+package com.rvega.dreamshops.dto;
+
+import com.rvega.dreamshops.enums.ProductFacet;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Transfer Object for one page of ranked product search results and their facet counts.
+ */
+@Data
+@AllArgsConstructor
+public class ProductSearchDto {
+    /**
+     * The products of the page, best match first.
+     */
+    private List<ProductDto> products;
+
+    /**
+     * The total number of products matching the query.
+     */
+    private int totalHits;
+
+    /**
+     * The zero-based number of the page.
+     */
+    private int page;
+
+    /**
+     * The size of the page.
+     */
+    private int size;
+
+    /**
+     * For each facet, the number of matching products per value, ignoring the filter on that facet itself.
+     */
+    private Map<ProductFacet, Map<String, Integer>> facets;
+}
@@ -0,0 +1,37 @@
+package com.rvega.dreamshops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Data Transfer Object exposing the counters of a Hibernate second-level or query cache region, used to confirm
+ * that cached entities, collections and queries are actually read from the cache.
+ */
+@Data
+@AllArgsConstructor
+public class SecondLevelCacheStatsDto {
+    /**
+     * The name of the region: an entity or collection role, or a query cache region.
+     */
+    private String region;
+
+    /**
+     * The number of lookups served from the region.
+     */
+    private long hitCount;
+
+    /**
+     * The number of lookups that had to read the database.
+     */
+    private long missCount;
+
+    /**
+     * The number of entries written to the region.
+     */
+    private long putCount;
+
+    /**
+     * The ratio of hits to lookups, between 0 and 1.
+     */
+    private double hitRate;
+}
@@ -0,0 +1,37 @@
+package com.rvega.dreamshops.enums;
+
+/**
+ * Enum representing the resized variants generated for every uploaded image.
+ * A variant fits the image into a square of the given size, keeping its aspect ratio; images that already fit
+ * are served as they are.
+ */
+public enum ImageSize {
+
+    /**
+     * Thumbnails shown in product listings.
+     */
+    THUMBNAIL(200),
+
+    /**
+     * Images shown in product cards and search results.
+     */
+    SMALL(480),
+
+    /**
+     * Images shown on product pages.
+     */
+    MEDIUM(1024);
+
+    private final int maxDimension;
+
+    ImageSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * @return The maximum width and height of the variant, in pixels.
+     */
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+}
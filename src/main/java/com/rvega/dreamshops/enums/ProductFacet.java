@@ -0,0 +1,22 @@
+package com.rvega.dreamshops.enums;
+
+/**
+ * Enum representing the attributes the product catalog can be filtered and counted by.
+ */
+public enum ProductFacet {
+
+    /**
+     * The brand of the product.
+     */
+    BRAND,
+
+    /**
+     * The name of the category of the product.
+     */
+    CATEGORY,
+
+    /**
+     * The price range of the product, such as "25-50" or "1000+".
+     */
+    PRICE
+}
@@ -0,0 +1,48 @@
+package com.rvega.dreamshops.enums;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Enum representing the formats accepted by the bulk product import, with the media type they are uploaded as.
+ */
+public enum ProductImportFormat {
+
+    /**
+     * Comma-separated values with a header row naming the columns: name, brand, price, inventory, description, category.
+     */
+    CSV(new MediaType("text", "csv")),
+
+    /**
+     * Newline-delimited JSON, one product per line, with the fields of a product add request.
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    ProductImportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * @return The media type of the format.
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Finds the format of an upload from its content type.
+     *
+     * @param contentType The content type of the upload.
+     * @return The matching format.
+     * @throws IllegalArgumentException If the content type is not a supported import format.
+     */
+    public static ProductImportFormat of(MediaType contentType) {
+        for (ProductImportFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(contentType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + contentType);
+    }
+}
@@ -0,0 +1,45 @@
+package com.rvega.dreamshops.enums;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Enum representing the stable sort orders supported by the paginated product listings.
+ * Every order ends with the product ID so that the keyset used for paging is always unique.
+ */
+public enum ProductSort {
+
+    /**
+     * Products ordered by their ID, oldest first.
+     */
+    ID(Sort.by(Sort.Order.asc("id"))),
+
+    /**
+     * Products ordered by price from lowest to highest, ties broken by ID.
+     */
+    PRICE_ASC(Sort.by(Sort.Order.asc("price"), Sort.Order.asc("id"))),
+
+    /**
+     * Products ordered by price from highest to lowest, ties broken by ID.
+     */
+    PRICE_DESC(Sort.by(Sort.Order.desc("price"), Sort.Order.desc("id")));
+
+    private final Sort sort;
+
+    ProductSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    /**
+     * @return The Spring Data sort matching this order.
+     */
+    public Sort toSort() {
+        return sort;
+    }
+
+    /**
+     * @return Whether the keyset of this order contains the product price.
+     */
+    public boolean isPriceSort() {
+        return this != ID;
+    }
+}
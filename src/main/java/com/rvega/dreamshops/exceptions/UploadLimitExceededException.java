@@ -0,0 +1,16 @@
+package com.rvega.dreamshops.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class UploadLimitExceededException extends RuntimeException {
+    /**
+     * The number of seconds after which the client may retry.
+     */
+    private final long retryAfterInSeconds;
+
+    public UploadLimitExceededException(String message, long retryAfterInSeconds) {
+        super(message);
+        this.retryAfterInSeconds = retryAfterInSeconds;
+    }
+}
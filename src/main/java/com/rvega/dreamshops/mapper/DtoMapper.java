@@ -0,0 +1,253 @@
+package com.rvega.dreamshops.mapper;
+
+import com.rvega.dreamshops.dto.CartDto;
+import com.rvega.dreamshops.dto.CartItemDto;
+import com.rvega.dreamshops.dto.ImageDto;
+import com.rvega.dreamshops.dto.OrderDto;
+import com.rvega.dreamshops.dto.OrderItemDto;
+import com.rvega.dreamshops.dto.ProductDto;
+import com.rvega.dreamshops.dto.UserDto;
+import com.rvega.dreamshops.model.Cart;
+import com.rvega.dreamshops.model.CartItem;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.model.Image;
+import com.rvega.dreamshops.model.Order;
+import com.rvega.dreamshops.model.OrderItem;
+import com.rvega.dreamshops.model.Product;
+import com.rvega.dreamshops.model.User;
+import com.rvega.dreamshops.repository.projection.ImageView;
+import com.rvega.dreamshops.repository.projection.ProductView;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maps entities and read-only projections to their Data Transfer Objects with plain getters and setters.
+ * Unlike a reflective mapper, it does not inspect types at runtime and allocates nothing but the target objects,
+ * which keeps it cheap on the catalog and order listing paths.
+ *
+ * @author rvega
+ */
+@Component
+public class DtoMapper {
+    private static final String DOWNLOAD_URL = "/api/v1/images/image/download/";
+
+    /**
+     * Maps a Product entity to a ProductDto object with the given, already loaded images.
+     *
+     * @param product The Product entity to map.
+     * @param images  The ImageDto objects of the product.
+     * @return The mapped ProductDto object.
+     */
+    public ProductDto toProductDto(Product product, List<ImageDto> images) {
+        ProductDto productDto = new ProductDto();
+        productDto.setId(product.getId());
+        productDto.setName(product.getName());
+        productDto.setBrand(product.getBrand());
+        productDto.setPrice(product.getPrice());
+        productDto.setInventory(product.getInventory());
+        productDto.setDescription(product.getDescription());
+        productDto.setCategory(product.getCategory());
+        productDto.setImages(images);
+        return productDto;
+    }
+
+    /**
+     * Maps a product projection to a ProductDto object with the given, already loaded images.
+     * The category is rebuilt from the projected ID and name.
+     *
+     * @param product The product projection to map.
+     * @param images  The ImageDto objects of the product.
+     * @return The mapped ProductDto object.
+     */
+    public ProductDto toProductDto(ProductView product, List<ImageDto> images) {
+        ProductDto productDto = new ProductDto();
+        productDto.setId(product.getId());
+        productDto.setName(product.getName());
+        productDto.setBrand(product.getBrand());
+        productDto.setPrice(product.getPrice());
+        productDto.setInventory(product.getInventory());
+        productDto.setDescription(product.getDescription());
+        if (product.getCategoryId() != null) {
+            Category category = new Category(product.getCategoryName());
+            category.setId(product.getCategoryId());
+            productDto.setCategory(category);
+        }
+        productDto.setImages(images);
+        return productDto;
+    }
+
+    /**
+     * Maps a Product entity to a ProductDto object, including the images held by the entity.
+     *
+     * @param product The Product entity to map.
+     * @return The mapped ProductDto object.
+     */
+    public ProductDto toProductDto(Product product) {
+        return toProductDto(product, toImageDtos(product.getImages()));
+    }
+
+    /**
+     * Maps an Image entity to an ImageDto object.
+     *
+     * @param image The Image entity to map.
+     * @return The mapped ImageDto object.
+     */
+    public ImageDto toImageDto(Image image) {
+        ImageDto imageDto = new ImageDto();
+        imageDto.setId(image.getId());
+        imageDto.setFileName(image.getFileName());
+        imageDto.setDownloadUrl(downloadUrl(image.getId(), image.getContentHash()));
+        return imageDto;
+    }
+
+    /**
+     * Maps an image projection to an ImageDto object.
+     *
+     * @param image The image projection to map.
+     * @return The mapped ImageDto object.
+     */
+    public ImageDto toImageDto(ImageView image) {
+        ImageDto imageDto = new ImageDto();
+        imageDto.setId(image.getId());
+        imageDto.setFileName(image.getFileName());
+        imageDto.setDownloadUrl(downloadUrl(image.getId(), image.getContentHash()));
+        return imageDto;
+    }
+
+    /**
+     * Builds the download URL of an image from its ID, with the hash of the image file appended. The URL then
+     * changes with the file, so clients and proxies may cache its response forever.
+     */
+    private static String downloadUrl(Long imageId, String contentHash) {
+        String downloadUrl = DOWNLOAD_URL + imageId;
+        return contentHash == null ? downloadUrl : downloadUrl + "?v=" + contentHash;
+    }
+
+    /**
+     * Maps a collection of Image entities to a list of ImageDto objects.
+     *
+     * @param images The Image entities to map, possibly null.
+     * @return The mapped ImageDto objects, or an empty list if there are no images.
+     */
+    public List<ImageDto> toImageDtos(Collection<Image> images) {
+        if (images == null || images.isEmpty()) {
+            return List.of();
+        }
+        List<ImageDto> imageDtos = new ArrayList<>(images.size());
+        for (Image image : images) {
+            imageDtos.add(toImageDto(image));
+        }
+        return imageDtos;
+    }
+
+    /**
+     * Maps an Order entity to an OrderDto object, including its items.
+     *
+     * @param order The Order entity to map.
+     * @return The mapped OrderDto object.
+     */
+    public OrderDto toOrderDto(Order order) {
+        OrderDto orderDto = new OrderDto();
+        orderDto.setId(order.getOrderId());
+        orderDto.setUserId(order.getUser() != null ? order.getUser().getId() : null);
+        orderDto.setOrderDate(order.getOrderDate());
+        orderDto.setTotalAmount(order.getTotalAmount());
+        orderDto.setStatus(order.getOrderStatus() != null ? order.getOrderStatus().name() : null);
+
+        Set<OrderItem> orderItems = order.getOrderItems();
+        List<OrderItemDto> items = new ArrayList<>(orderItems != null ? orderItems.size() : 0);
+        if (orderItems != null) {
+            for (OrderItem orderItem : orderItems) {
+                items.add(toOrderItemDto(orderItem));
+            }
+        }
+        orderDto.setItems(items);
+        return orderDto;
+    }
+
+    /**
+     * Maps an OrderItem entity to an OrderItemDto object.
+     *
+     * @param orderItem The OrderItem entity to map.
+     * @return The mapped OrderItemDto object.
+     */
+    public OrderItemDto toOrderItemDto(OrderItem orderItem) {
+        OrderItemDto orderItemDto = new OrderItemDto();
+        Product product = orderItem.getProduct();
+        if (product != null) {
+            orderItemDto.setProductId(product.getId());
+            orderItemDto.setProductName(product.getName());
+            orderItemDto.setProductBrand(product.getBrand());
+        }
+        orderItemDto.setQuantity(orderItem.getQuantity());
+        orderItemDto.setPrice(orderItem.getPrice());
+        return orderItemDto;
+    }
+
+    /**
+     * Maps a Cart entity to a CartDto object, including its items.
+     *
+     * @param cart The Cart entity to map.
+     * @return The mapped CartDto object.
+     */
+    public CartDto toCartDto(Cart cart) {
+        CartDto cartDto = new CartDto();
+        cartDto.setCartId(cart.getId());
+        cartDto.setTotalAmount(cart.getTotalAmount());
+
+        Set<CartItem> cartItems = cart.getItems();
+        Set<CartItemDto> items = new HashSet<>();
+        if (cartItems != null) {
+            for (CartItem cartItem : cartItems) {
+                items.add(toCartItemDto(cartItem));
+            }
+        }
+        cartDto.setItems(items);
+        return cartDto;
+    }
+
+    /**
+     * Maps a CartItem entity to a CartItemDto object.
+     *
+     * @param cartItem The CartItem entity to map.
+     * @return The mapped CartItemDto object.
+     */
+    public CartItemDto toCartItemDto(CartItem cartItem) {
+        CartItemDto cartItemDto = new CartItemDto();
+        cartItemDto.setItemId(cartItem.getId());
+        cartItemDto.setQuantity(cartItem.getQuantity());
+        cartItemDto.setUnitPrice(cartItem.getUnitPrice());
+        cartItemDto.setProduct(cartItem.getProduct() != null ? toProductDto(cartItem.getProduct()) : null);
+        return cartItemDto;
+    }
+
+    /**
+     * Maps a User entity to a UserDto object, including their orders and cart.
+     *
+     * @param user The User entity to map.
+     * @return The mapped UserDto object.
+     */
+    public UserDto toUserDto(User user) {
+        UserDto userDto = new UserDto();
+        userDto.setId(user.getId());
+        userDto.setFirstName(user.getFirstName());
+        userDto.setLastName(user.getLastName());
+        userDto.setEmail(user.getEmail());
+
+        List<Order> orders = user.getOrders();
+        List<OrderDto> orderDtos = new ArrayList<>(orders != null ? orders.size() : 0);
+        if (orders != null) {
+            for (Order order : orders) {
+                orderDtos.add(toOrderDto(order));
+            }
+        }
+        userDto.setOrders(orderDtos);
+        userDto.setCart(user.getCart() != null ? toCartDto(user.getCart()) : null);
+        return userDto;
+    }
+}
@@ -18,7 +18,9 @@ public class CartItem {
 
     // Primary key for the CartItem entity
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "cart_item_id")
+    @TableGenerator(name = "cart_item_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "cart_item", allocationSize = 50)
     private Long id;
 
     // Quantity of the product in the cart item
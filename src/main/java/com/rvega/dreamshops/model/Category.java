@@ -2,6 +2,8 @@ package com.rvega.dreamshops.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -10,6 +12,7 @@ import java.util.List;
 
 /**
  * Represents a category in the e-commerce application.
+ * Categories are read with every product and rarely change, so they are kept in the second-level cache.
  *
  * @author rvega
  */
@@ -17,6 +20,8 @@ import java.util.List;
 @Setter
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
 public class Category {
     /**
      * Unique identifier for the category.
@@ -5,24 +5,32 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
-import java.sql.Blob;
+import java.time.LocalDateTime;
 
 /**
  * Represents an image entity in the Dream Shops application.
- * This class is used to store information about images, such as their file name, type, binary data, download URL, and the product they belong to.
+ * This class is used to store information about images, such as their file name, type, content hash, and the product they belong to.
+ * The download URL of an image is derived from its ID when it is mapped to a DTO.
  */
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
+// Every download looks the image up by ID, so the metadata of the most downloaded images is kept in the second-level cache
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "image")
 public class Image {
     /**
      * Unique identifier for the image.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "image_id")
+    @TableGenerator(name = "image_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "image", allocationSize = 50)
     private Long id;
 
     /**
@@ -36,23 +44,28 @@ public class Image {
     private String fileType;
 
     /**
-     * The binary data of the image.
-     * This field is annotated with {@link Lob} to indicate that it can store large objects.
+     * The SHA-256 hash of the image file, which addresses its content in the image storage.
+     * The file itself is kept outside the database, and may be shared by images with the same content.
      */
-    @Lob
-    private Blob image;
+    @Column(length = 64)
+    private String contentHash;
 
     /**
-     * The download URL of the image.
-     * This URL can be used to retrieve the image from a remote server.
+     * The size of the image file in bytes.
      */
-    private String downloadUrl;
+    private Long fileSize;
+
+    /**
+     * The time, in UTC, at which the image file was last uploaded.
+     */
+    private LocalDateTime lastModified;
 
     /**
      * The product that the image belongs to.
      * This field is annotated with {@link ManyToOne} and {@link JoinColumn} to establish a relationship between the Image and Product entities.
+     * It is fetched lazily, so loading image metadata does not also load the product and its category.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
 }
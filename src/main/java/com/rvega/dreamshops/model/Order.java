@@ -19,10 +19,12 @@ import java.util.Set;
 public class Order {
 
     /**
-     * Unique identifier for each order, generated automatically by the database.
+     * Unique identifier for each order, allocated in blocks from the id_generator table.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "orders_id")
+    @TableGenerator(name = "orders_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "orders", allocationSize = 50)
     private Long orderId;
 
     /**
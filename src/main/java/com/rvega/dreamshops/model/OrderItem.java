@@ -18,7 +18,9 @@ public class OrderItem {
      * Unique identifier for the order item.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_id")
+    @TableGenerator(name = "order_item_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "order_item", allocationSize = 50)
     private Long id;
 
     /**
@@ -1,6 +1,8 @@
 package com.rvega.dreamshops.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -11,18 +13,27 @@ import java.util.List;
 @Getter
 @Setter
 @NoArgsConstructor
+// Popular products are read far more often than they change; the cache entry is locked while a change commits
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
 public class Product {
+    // IDs are handed out in blocks of 50 from the id_generator table, so new products can be inserted in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "product_id")
+    @TableGenerator(name = "product_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "product", allocationSize = 50)
     private Long id;
     private String name;
     private String brand;
+    // Required: the price listings page on the keyset (price, id), which has no place for a null price
+    @Column(nullable = false)
     private BigDecimal price;
     private int inventory;
     private String description;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    // Categories are managed by CategoryService and shared by many products, so no operation cascades to them.
+    @ManyToOne
     @JoinColumn(name = "category_id")
     private Category category;
 
@@ -1,6 +1,8 @@
 package com.rvega.dreamshops.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -8,7 +10,10 @@ import lombok.Setter;
 import java.util.Collection;
 import java.util.HashSet;
 
+// Roles are created once at startup and never changed, so they are cached without any locking
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "role")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.NaturalId;
 
 import java.util.Collection;
@@ -18,9 +20,11 @@ import java.util.List;
 @Entity
 public class User {
 
-    // ID of the user, auto-generated with a strategy of identity.
+    // ID of the user, allocated in blocks from the id_generator table.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id")
+    @TableGenerator(name = "user_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "user", allocationSize = 50)
     private Long id;
 
     // User's first name.
@@ -61,6 +65,8 @@ public class User {
                     referencedColumnName = "id" // Maps to the primary key column in the role table.
             )
     )
+    // The roles are read on every authenticated request; the cached collection holds the role IDs, resolved from the Role cache.
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-roles")
     private Collection<Role> roles = new HashSet<>();
 
 }
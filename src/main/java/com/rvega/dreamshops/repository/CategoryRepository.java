@@ -4,7 +4,5 @@ import com.rvega.dreamshops.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
-  Category findByName(String name);
-
   boolean existsByName(String name);
 }
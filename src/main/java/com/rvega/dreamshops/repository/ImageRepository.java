@@ -1,10 +1,27 @@
 package com.rvega.dreamshops.repository;
 
 import com.rvega.dreamshops.model.Image;
+import com.rvega.dreamshops.repository.projection.ImageView;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ImageRepository extends JpaRepository<Image, Long> {
-    List<Image> findByProductId(Long id);
+    @Transactional(readOnly = true)
+    List<ImageView> findByProductId(Long id);
+
+    @Transactional(readOnly = true)
+    List<ImageView> findByProductIdIn(Collection<Long> productIds);
+
+    /**
+     * Loads an image and locks its row until the end of the current transaction, so that concurrent updates of the
+     * image are applied one after the other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Image> findLockedById(Long id);
 }
@@ -1,20 +1,57 @@
 package com.rvega.dreamshops.repository;
 
 import com.rvega.dreamshops.model.Product;
+import com.rvega.dreamshops.repository.projection.ProductKeyView;
+import com.rvega.dreamshops.repository.projection.ProductView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
-    List<Product> findByCategoryName(String category);
+    @EntityGraph(attributePaths = "category")
+    Window<Product> findAllBy(ScrollPosition position, Sort sort, Limit limit);
 
-    List<Product> findByBrand(String brand);
+    @Transactional(readOnly = true)
+    Window<ProductView> findAllViewsBy(ScrollPosition position, Sort sort, Limit limit);
 
-    List<Product> findByCategoryNameAndBrand(String category, String brand);
+    @Transactional(readOnly = true)
+    Window<ProductView> findByCategoryName(String category, ScrollPosition position, Sort sort, Limit limit);
 
-    List<Product> findByName(String name);
+    @Transactional(readOnly = true)
+    Window<ProductView> findByBrand(String brand, ScrollPosition position, Sort sort, Limit limit);
 
-    List<Product> findByBrandAndName(String brand, String name);
+    @Transactional(readOnly = true)
+    Window<ProductView> findByCategoryNameAndBrand(String category, String brand, ScrollPosition position, Sort sort, Limit limit);
+
+    @Transactional(readOnly = true)
+    Window<ProductView> findByName(String name, ScrollPosition position, Sort sort, Limit limit);
+
+    @Transactional(readOnly = true)
+    Window<ProductView> findByBrandAndName(String brand, String name, ScrollPosition position, Sort sort, Limit limit);
+
+    @Transactional(readOnly = true)
+    List<ProductView> findByIdIn(Collection<? extends Long> ids);
+
+    /**
+     * Streams every product in ID order with a forward-only cursor, fetching rows from the database in batches.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ProductView> streamAllByOrderById();
+
+    @Transactional(readOnly = true)
+    List<ProductKeyView> findByBrandInAndNameIn(Collection<String> brands, Collection<String> names);
 
     Long countByBrandAndName(String brand, String name);
 
@@ -0,0 +1,16 @@
+package com.rvega.dreamshops.repository.projection;
+
+/**
+ * Read-only projection of the metadata of an image, without its content.
+ *
+ * @author rvega
+ */
+public interface ImageView {
+    Long getId();
+
+    String getFileName();
+
+    String getContentHash();
+
+    Long getProductId();
+}
@@ -0,0 +1,12 @@
+package com.rvega.dreamshops.repository.projection;
+
+/**
+ * Read-only projection of the natural key of a product: its name and brand.
+ *
+ * @author rvega
+ */
+public interface ProductKeyView {
+    String getName();
+
+    String getBrand();
+}
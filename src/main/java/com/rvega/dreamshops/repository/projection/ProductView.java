@@ -0,0 +1,28 @@
+package com.rvega.dreamshops.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only projection of a product holding exactly the columns of a product DTO.
+ * Queries returning it select these columns, joined with the category, instead of loading managed entities,
+ * so listings involve no entity instantiation, persistence context snapshot or dirty checking.
+ *
+ * @author rvega
+ */
+public interface ProductView {
+    Long getId();
+
+    String getName();
+
+    String getBrand();
+
+    BigDecimal getPrice();
+
+    int getInventory();
+
+    String getDescription();
+
+    Long getCategoryId();
+
+    String getCategoryName();
+}
@@ -0,0 +1,20 @@
+package com.rvega.dreamshops.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * A price and stock change of one product, as part of a bulk update.
+ * Fields left null keep their current value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkProductUpdateRequest {
+    private Long id;
+    private BigDecimal price;
+    private Integer inventory;
+}
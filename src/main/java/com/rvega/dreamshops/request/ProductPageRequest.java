@@ -0,0 +1,30 @@
+package com.rvega.dreamshops.request;
+
+import com.rvega.dreamshops.enums.ProductSort;
+import lombok.Data;
+
+/**
+ * Query parameters of a paginated product listing.
+ * The cursor is the opaque continuation token returned with the previous page, or null for the first page.
+ */
+@Data
+public class ProductPageRequest {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private String cursor;
+    private Integer size;
+    private ProductSort sort = ProductSort.ID;
+
+    /**
+     * Returns the requested page size, defaulted when absent and clamped to {@link #MAX_PAGE_SIZE}.
+     *
+     * @return The number of products to return in the page.
+     */
+    public int getLimit() {
+        if (size == null || size < 1) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+}
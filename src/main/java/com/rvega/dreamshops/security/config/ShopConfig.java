@@ -5,7 +5,6 @@ import com.rvega.dreamshops.security.jwt.JwtAuthEntryPoint;
 import com.rvega.dreamshops.security.user.ShopUserDetailsService;
 import lombok.RequiredArgsConstructor;
 import org.apache.tomcat.util.net.openssl.ciphers.Authentication;
-import org.modelmapper.ModelMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -38,12 +37,6 @@ public class ShopConfig {
     // List of URLs that require authentication
     private static final List<String> SECURED_URLS = List.of("/api/v1/cart/**", "/api/v1/cartItems/**");
 
-    // Bean for creating an instance of ModelMapper
-    @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
-    }
-
     // Bean for creating an instance of BCryptPasswordEncoder
     @Bean
     public PasswordEncoder passwordEncoder() {
@@ -0,0 +1,48 @@
+package com.rvega.dreamshops.service.cache;
+
+import com.rvega.dreamshops.dto.SecondLevelCacheStatsDto;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reports the counters of the Hibernate second-level and query cache regions.
+ * <p>
+ * Hibernate only counts when {@code hibernate.generate_statistics} is set. It is off by default, because
+ * statistics are updated on every statement, entity load and cache lookup of the application.
+ *
+ * @author rvega
+ */
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheStats {
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Retrieves the hit, miss and put counters of each Hibernate second-level and query cache region,
+     * counted since startup.
+     *
+     * @return The counters of each region, sorted by region name. Empty when statistics are disabled.
+     */
+    public List<SecondLevelCacheStatsDto> getStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return List.of();
+        }
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(region -> {
+                    CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+                    long lookups = stats.getHitCount() + stats.getMissCount();
+                    return new SecondLevelCacheStatsDto(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount(),
+                            lookups == 0 ? 0 : (double) stats.getHitCount() / lookups);
+                })
+                .toList();
+    }
+}
@@ -9,6 +9,7 @@ import com.rvega.dreamshops.repository.CartRepository;
 import com.rvega.dreamshops.service.product.IProductService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 
@@ -25,11 +26,13 @@ public class CartItemService implements ICartItemService {
     /**
      * Adds an item to the cart. If the item already exists, the quantity is updated.
      * Otherwise, a new CartItem is created and added to the cart.
+     * The cart is read and updated in one transaction, which the read-only {@link ICartService#getCart} joins.
      *
      * @param cartId    the ID of the cart
      * @param productId the ID of the product
      * @param quantity  the quantity to add
      */
+    @Transactional
     @Override
     public void addItemToCart(Long cartId, Long productId, int quantity) {
         // Retrieve the cart and product
@@ -67,6 +70,7 @@ public class CartItemService implements ICartItemService {
      * @param cartId    the ID of the cart
      * @param productId the ID of the product to remove
      */
+    @Transactional
     @Override
     public void removeItemFromCart(Long cartId, Long productId) {
         // Retrieve the cart
@@ -87,6 +91,7 @@ public class CartItemService implements ICartItemService {
      * @param productId the ID of the product to update
      * @param quantity  the new quantity for the product
      */
+    @Transactional
     @Override
     public void updateItemQuantity(Long cartId, Long productId, int quantity) {
         // Retrieve the cart
@@ -28,18 +28,16 @@ public class CartService implements ICartService {
 
     /**
      * Retrieves a cart by its ID. If the cart is not found, throws a ResourceNotFoundException.
-     * Also updates and persists the total amount of the cart.
+     * This is a read-only transaction; the total amount is persisted by the methods that change the items.
      *
      * @param id The ID of the cart to retrieve.
      * @return The retrieved cart.
      */
+    @Transactional(readOnly = true)
     @Override
     public Cart getCart(Long id) {
-        Cart cart = cartRepository.findById(id)
+        return cartRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
-        BigDecimal totalAmount = cart.getTotalAmount();
-        cart.setTotalAmount(totalAmount);
-        return cartRepository.save(cart);
     }
 
     /**
@@ -63,6 +61,7 @@ public class CartService implements ICartService {
      * @param id The ID of the cart.
      * @return The total price of the cart.
      */
+    @Transactional(readOnly = true)
     @Override
     public BigDecimal getTotalPrice(Long id) {
         Cart cart = getCart(id);
@@ -0,0 +1,135 @@
+package com.rvega.dreamshops.service.catalog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version counters of the product catalog, used as entity tags of the catalog read endpoints.
+ * <p>
+ * A global counter moves on every product, image or category change. Each product also remembers the global
+ * version of its last change, and categories the version of their last change, since products embed their
+ * category name. Clients holding the current tag of a resource can be answered with a 304 without reading it.
+ * <p>
+ * The versions of the products changed most recently are kept, up to a maximum number. The products that are
+ * evicted or deleted fall back to the highest version given up, which is not lower than their own, so their tags
+ * still change with them; they only change more often than needed.
+ * <p>
+ * Tags are prefixed with the startup time, so they never match tags handed out before a restart.
+ * Changes made inside a transaction bump again once it commits, so a tag read after the change was visible
+ * can never be attached to data read before the commit.
+ *
+ * @author rvega
+ */
+@Component
+public class CatalogVersion {
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong forgottenVersion = new AtomicLong();
+    private final Cache<Long, Long> productVersions;
+    private volatile long categoryVersion;
+
+    public CatalogVersion(@Value("${catalog.version.maxProducts:100000}") long maxProducts) {
+        this.productVersions = Caffeine.newBuilder()
+                .maximumSize(maxProducts)
+                .evictionListener((Long productId, Long productVersion, RemovalCause cause) -> forget(productVersion))
+                .build();
+    }
+
+    /**
+     * Records a change of a product or of its images.
+     *
+     * @param productId The ID of the changed product.
+     */
+    public void bumpProduct(Long productId) {
+        bumpNowAndAfterCommit(() -> productVersions.put(productId, version.incrementAndGet()));
+    }
+
+    /**
+     * Records the deletion of a product, and stops keeping its version.
+     *
+     * @param productId The ID of the deleted product.
+     */
+    public void removeProduct(Long productId) {
+        bumpNowAndAfterCommit(() -> {
+            forget(version.incrementAndGet());
+            productVersions.invalidate(productId);
+        });
+    }
+
+    /**
+     * Records a change of several products at once.
+     *
+     * @param productIds The IDs of the changed products.
+     */
+    public void bumpProducts(Collection<Long> productIds) {
+        bumpNowAndAfterCommit(() -> {
+            long changed = version.incrementAndGet();
+            productIds.forEach(productId -> productVersions.put(productId, changed));
+        });
+    }
+
+    /**
+     * Records a change of the catalog that affects no existing product, such as new products.
+     */
+    public void bumpCatalog() {
+        bumpNowAndAfterCommit(version::incrementAndGet);
+    }
+
+    /**
+     * Records a change of the categories, which affects every product.
+     */
+    public void bumpCategories() {
+        bumpNowAndAfterCommit(() -> categoryVersion = version.incrementAndGet());
+    }
+
+    /**
+     * @return The tag of the whole catalog, which changes with any product, image or category.
+     */
+    public String catalogETag() {
+        return eTag(version.get());
+    }
+
+    /**
+     * @return The tag of the category list.
+     */
+    public String categoriesETag() {
+        return eTag(categoryVersion);
+    }
+
+    /**
+     * @param productId The ID of the product.
+     * @return The tag of the product, which changes with the product, its images and the categories.
+     */
+    public String productETag(Long productId) {
+        Long productVersion = productVersions.getIfPresent(productId);
+        return eTag(Math.max(productVersion != null ? productVersion : forgottenVersion.get(), categoryVersion));
+    }
+
+    private void forget(long productVersion) {
+        forgottenVersion.accumulateAndGet(productVersion, Math::max);
+    }
+
+    private String eTag(long version) {
+        return epoch + "-" + version;
+    }
+
+    private static void bumpNowAndAfterCommit(Runnable bump) {
+        bump.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.rvega.dreamshops.service.category;
+
+import com.rvega.dreamshops.config.ReadWriteRoutingDataSource;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.repository.CategoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resident, copy-on-write dictionary of all categories, indexed by name and by ID.
+ * Categories are a tiny, rarely changing set, so reads never touch the database: they go through an immutable
+ * snapshot that writers replace atomically after each change made through {@link CategoryService}.
+ * <p>
+ * Names are matched ignoring case, like the default MySQL collation of the category table.
+ * The categories handed out are shared between requests and must not be modified.
+ *
+ * @author rvega
+ */
+@Component
+@RequiredArgsConstructor
+public class CategoryDictionary {
+    private final CategoryRepository categoryRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), List.of());
+
+    /**
+     * Loads every category from the primary database, replacing the current snapshot.
+     */
+    @PostConstruct
+    public synchronized void reload() {
+        snapshot = Snapshot.of(ReadWriteRoutingDataSource.readFromPrimary(categoryRepository::findAll));
+    }
+
+    /**
+     * @param id The ID of the category.
+     * @return The category with the given ID, if any.
+     */
+    public Optional<Category> getById(Long id) {
+        return Optional.ofNullable(snapshot.byId().get(id));
+    }
+
+    /**
+     * @param name The name of the category.
+     * @return The category with the given name, if any.
+     */
+    public Optional<Category> getByName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(snapshot.byName().get(key(name)));
+    }
+
+    /**
+     * @return All categories, as an unmodifiable list.
+     */
+    public List<Category> getAll() {
+        return snapshot.all();
+    }
+
+    /**
+     * Adds or replaces a saved category. A renamed category is no longer found under its old name.
+     *
+     * @param category The saved category.
+     */
+    public synchronized void put(Category category) {
+        Map<Long, Category> byId = new HashMap<>(snapshot.byId());
+        byId.put(category.getId(), category);
+        snapshot = Snapshot.of(byId.values());
+    }
+
+    /**
+     * Removes a deleted category.
+     *
+     * @param id The ID of the deleted category.
+     */
+    public synchronized void remove(Long id) {
+        Map<Long, Category> byId = new HashMap<>(snapshot.byId());
+        byId.remove(id);
+        snapshot = Snapshot.of(byId.values());
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Immutable state of the dictionary, swapped as a whole so readers never see a partial update.
+     */
+    private record Snapshot(Map<String, Category> byName, Map<Long, Category> byId, List<Category> all) {
+        static Snapshot of(Iterable<Category> categories) {
+            Map<String, Category> byName = new HashMap<>();
+            Map<Long, Category> byId = new HashMap<>();
+            for (Category category : categories) {
+                if (category.getName() != null) {
+                    byName.put(key(category.getName()), category);
+                }
+                byId.put(category.getId(), category);
+            }
+            List<Category> all = byId.values().stream().sorted(Comparator.comparing(Category::getId)).toList();
+            return new Snapshot(Map.copyOf(byName), Map.copyOf(byId), all);
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.rvega.dreamshops.exceptions.AlreadyExistsException;
 import com.rvega.dreamshops.exceptions.ResourceNotFoundException;
 import com.rvega.dreamshops.model.Category;
 import com.rvega.dreamshops.repository.CategoryRepository;
+import com.rvega.dreamshops.service.catalog.CatalogVersion;
+import com.rvega.dreamshops.service.product.ProductCache;
+import com.rvega.dreamshops.service.search.ProductSearchIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -14,9 +17,13 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CategoryService implements ICategoryService {
     private final CategoryRepository categoryRepository;
+    private final ProductCache productCache;
+    private final CategoryDictionary categoryDictionary;
+    private final ProductSearchIndex productSearchIndex;
+    private final CatalogVersion catalogVersion;
     
     /**
-     * Retrieves a category by its unique identifier.
+     * Retrieves a category by its unique identifier from the resident {@link CategoryDictionary}.
      *
      * @param id The unique identifier of the category.
      * @return The category with the given id.
@@ -24,29 +31,29 @@ public class CategoryService implements ICategoryService {
      */
     @Override
     public Category getCategoryById(Long id) {
-        return categoryRepository.findById(id)
+        return categoryDictionary.getById(id)
                 .orElseThrow(()-> new ResourceNotFoundException("Category not found!"));
     }
 
     /**
-     * Retrieves a category by its name.
+     * Retrieves a category by its name from the resident {@link CategoryDictionary}.
      *
      * @param name The name of the category.
-     * @return The category with the given name.
+     * @return The category with the given name, or null if there is none.
      */
     @Override
     public Category getCategoryByName(String name) {
-        return categoryRepository.findByName(name);
+        return categoryDictionary.getByName(name).orElse(null);
     }
 
     /**
-     * Retrieves all categories.
+     * Retrieves all categories from the resident {@link CategoryDictionary}.
      *
      * @return A list of all categories.
      */
     @Override
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        return categoryDictionary.getAll();
     }
 
     /**
@@ -58,9 +65,12 @@ public class CategoryService implements ICategoryService {
      */
     @Override
     public Category addCategory(Category category) {
-        return  Optional.of(category).filter(c -> !categoryRepository.existsByName(c.getName()))
+        Category savedCategory = Optional.of(category).filter(c -> categoryDictionary.getByName(c.getName()).isEmpty())
                 .map(categoryRepository :: save)
                 .orElseThrow(() -> new AlreadyExistsException(category.getName()+" already exists"));
+        categoryDictionary.put(savedCategory);
+        catalogVersion.bumpCategories();
+        return savedCategory;
     }
 
     /**
@@ -73,9 +83,16 @@ public class CategoryService implements ICategoryService {
      */
     @Override
     public Category updateCategory(Category category, Long id) {
-        return Optional.ofNullable(getCategoryById(id)).map(oldCategory -> {
+        // Load a private copy: the instance held by the dictionary is shared and must not be modified
+        return categoryRepository.findById(id).map(oldCategory -> {
             oldCategory.setName(category.getName());
-            return categoryRepository.save(oldCategory);
+            Category savedCategory = categoryRepository.save(oldCategory);
+            categoryDictionary.put(savedCategory);
+            // Every cached and indexed product of the category embeds its old name
+            productCache.invalidateAll();
+            productSearchIndex.updateCategory(savedCategory);
+            catalogVersion.bumpCategories();
+            return savedCategory;
         }) .orElseThrow(()-> new ResourceNotFoundException("Category not found!"));
     }
 
@@ -88,7 +105,11 @@ public class CategoryService implements ICategoryService {
     @Override
     public void deleteCategoryById(Long id) {
         categoryRepository.findById(id)
-                .ifPresentOrElse(categoryRepository::delete, () -> {
+                .ifPresentOrElse(category -> {
+                    categoryRepository.delete(category);
+                    categoryDictionary.remove(id);
+                    catalogVersion.bumpCategories();
+                }, () -> {
                     throw new ResourceNotFoundException("Category not found!");
                 });
     }
@@ -1,14 +1,21 @@
 package com.rvega.dreamshops.service.image;
 
+import com.rvega.dreamshops.dto.CacheStatsDto;
 import com.rvega.dreamshops.dto.ImageDto;
+import com.rvega.dreamshops.enums.ImageSize;
 import com.rvega.dreamshops.model.Image;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 public interface IImageService {
     Image getImageById(Long id);
+    Resource getImageContent(Image image, ImageSize size);
+    ByteBuffer getCachedImageContent(Resource content);
     void deleteImageById(Long id);
     List<ImageDto> saveImages(Long productId, List<MultipartFile> files);
     void updateImage(MultipartFile file,  Long imageId);
+    CacheStatsDto getCacheStats();
 }
@@ -0,0 +1,113 @@
+package com.rvega.dreamshops.service.image;
+
+import com.rvega.dreamshops.model.Image;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Moves image files stored in the legacy {@code image.image} blob column into the {@link ImageStorage}.
+ * <p>
+ * Once the application is ready, the blobs are copied in batches, each row getting the hash and size of its file
+ * while its blob is cleared and its file counted, so the migration can be interrupted and resumed at any time.
+ * Images that are requested before their turn are migrated on demand. The blob column can be dropped once no row
+ * still holds a blob.
+ *
+ * @author rvega
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageBlobMigrator implements ApplicationListener<ApplicationReadyEvent> {
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageStorage imageStorage;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ImageContentReferences imageContentReferences;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${image.storage.migrateBlobsOnStartup:true}")
+    private boolean migrateBlobsOnStartup;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (migrateBlobsOnStartup) {
+            int migrated = migrateAll();
+            if (migrated > 0) {
+                log.info("Moved the content of {} images from the database to the image storage", migrated);
+            }
+        }
+    }
+
+    /**
+     * Migrates the blobs of all images that still have one.
+     *
+     * @return The number of images migrated.
+     */
+    public int migrateAll() {
+        int migrated = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList("select id from image where content_hash is null and image is not null "
+                    + "order by id limit " + BATCH_SIZE, Long.class);
+            for (Long id : ids) {
+                if (migrate(id) != null) {
+                    migrated++;
+                }
+            }
+        } while (ids.size() == BATCH_SIZE);
+        return migrated;
+    }
+
+    /**
+     * Copies the blob of an image into the image storage and clears it.
+     * Only one copy is kept if the image is migrated concurrently, as both store the same content.
+     *
+     * @param imageId The ID of the image to migrate.
+     * @return The hash of the stored content, or null if the image has no blob.
+     */
+    public String migrate(Long imageId) {
+        // The blob is streamed from the result set into the storage, rather than read into memory first
+        ImageStorage.StoredContent stored = jdbcTemplate.query("select image from image where id = ? and image is not null", rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            try (InputStream content = rs.getBinaryStream(1)) {
+                return imageStorage.store(content);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot migrate the content of image " + imageId, e);
+            }
+        }, imageId);
+        if (stored == null) {
+            return null;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // The blob is only read again if the stored file was deleted meanwhile, with the last image sharing it
+            imageContentReferences.acquire(stored, () ->
+                    new ByteArrayInputStream(jdbcTemplate.queryForObject("select image from image where id = ?", byte[].class, imageId)));
+            if (jdbcTemplate.update("update image set content_hash = ?, file_size = ?, last_modified = ?, image = null "
+                    + "where id = ? and content_hash is null", stored.contentHash(), stored.size(), LocalDateTime.now(ZoneOffset.UTC), imageId) == 0) {
+                // Migrated concurrently, which counted the image already
+                status.setRollbackOnly();
+            }
+        });
+        // The statement bypassed Hibernate, so its second-level cache still holds the image without its hash
+        entityManagerFactory.getCache().evict(Image.class, imageId);
+        return stored.contentHash();
+    }
+}
@@ -0,0 +1,144 @@
+package com.rvega.dreamshops.service.image;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.rvega.dreamshops.dto.CacheStatsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process cache of the most downloaded image files and variants, held in direct buffers outside the heap.
+ * <p>
+ * The cache is bounded by the total size of the files, {@code image.cache.maxSizeInMegabytes}, and only holds files
+ * up to {@code image.cache.maxEntrySizeInKilobytes}. Caffeine's W-TinyLFU policy only admits a file in place of
+ * others when it is requested more often, so a burst of one-off downloads cannot evict the hot images.
+ * <p>
+ * Since Caffeine decides on admission only after the file was read, a doorkeeper filters the misses first: a file is
+ * read into memory on its second miss only, and the first is streamed from the storage like an uncached file.
+ * The doorkeeper is a fixed table of name fingerprints in sets of two, each keeping the two names that missed last.
+ * Two names sharing a set are both remembered; only when three or more names of one set keep missing in turn can they
+ * push each other out and be streamed on every miss.
+ * <p>
+ * Files are keyed by their name in the storage, which is derived from their content hash, so a cached file never
+ * goes stale; files are evicted when their content is deleted. Direct memory is released once an evicted buffer is
+ * garbage collected, so {@code -XX:MaxDirectMemorySize} should leave room above the cache size.
+ *
+ * @author rvega
+ */
+@Component
+public class ImageContentCache {
+    private static final int DOORKEEPER_SETS = 4096;
+
+    private final Cache<String, ByteBuffer> contents;
+    private final long maxEntrySize;
+    private final AtomicLongArray doorkeeper = new AtomicLongArray(2 * DOORKEEPER_SETS);
+
+    public ImageContentCache(@Value("${image.cache.maxSizeInMegabytes:64}") long maxSizeInMegabytes,
+                             @Value("${image.cache.maxEntrySizeInKilobytes:1024}") long maxEntrySizeInKilobytes) {
+        this.contents = Caffeine.newBuilder()
+                .maximumWeight(maxSizeInMegabytes * 1024 * 1024)
+                .<String, ByteBuffer>weigher((key, buffer) -> buffer.capacity())
+                .recordStats()
+                .build();
+        this.maxEntrySize = maxEntrySizeInKilobytes * 1024;
+    }
+
+    /**
+     * Returns the cached content of a stored file. A file missed before is read into a direct buffer and cached.
+     *
+     * @param content The stored file.
+     * @return A read-only buffer of the whole file, to be sliced by the caller, or null if the file is not cached
+     * because it is too large or missed for the first time.
+     * @throws UncheckedIOException If the file cannot be read.
+     */
+    public ByteBuffer get(Resource content) {
+        String name = content.getFilename();
+        if (name == null) {
+            return null;
+        }
+        ByteBuffer cached = contents.getIfPresent(name);
+        if (cached == null) {
+            try {
+                if (content.contentLength() > maxEntrySize || !missedBefore(name)) {
+                    return null;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            cached = contents.asMap().computeIfAbsent(name, key -> read(content));
+        }
+        return cached.asReadOnlyBuffer();
+    }
+
+    /**
+     * Evicts a file and all its variants.
+     *
+     * @param contentHash The hash of the deleted content.
+     */
+    public void evict(String contentHash) {
+        contents.asMap().keySet().removeIf(name -> name.startsWith(contentHash));
+    }
+
+    /**
+     * @return The hit, miss and eviction counters of the cache.
+     */
+    public CacheStatsDto getStats() {
+        CacheStats stats = contents.stats();
+        return new CacheStatsDto("images", contents.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+
+    /**
+     * Records a miss of a file in the doorkeeper. Concurrent misses in one set may lose one of the names,
+     * which then waits for another miss.
+     *
+     * @return Whether one of the last two misses recorded in the set of the file was for the same file.
+     */
+    private boolean missedBefore(String name) {
+        long fingerprint = fingerprint(name);
+        int first = 2 * doorkeeperSet(name);
+        if (doorkeeper.get(first) == fingerprint || doorkeeper.get(first + 1) == fingerprint) {
+            return true;
+        }
+        // The newer name of the set moves to the second way, so the older one is forgotten
+        doorkeeper.set(first + 1, doorkeeper.get(first));
+        doorkeeper.set(first, fingerprint);
+        return false;
+    }
+
+    /**
+     * @return The set of the doorkeeper that remembers the misses of a file.
+     */
+    static int doorkeeperSet(String name) {
+        long fingerprint = fingerprint(name);
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & (DOORKEEPER_SETS - 1);
+    }
+
+    private static long fingerprint(String name) {
+        long fingerprint = 1125899906842597L;
+        for (int i = 0; i < name.length(); i++) {
+            fingerprint = 31 * fingerprint + name.charAt(i);
+        }
+        return fingerprint;
+    }
+
+    private static ByteBuffer read(Resource content) {
+        try (ReadableByteChannel channel = content.readableChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) content.contentLength());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Reads until the buffer is full
+            }
+            return buffer.flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot cache " + content.getFilename(), e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.rvega.dreamshops.service.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Counts the images referring to each stored file, in the {@code image_content} table, and deletes files once no
+ * image refers to them. Images with the same content, such as a packshot shared by product variants, share one file.
+ * <p>
+ * Counts change in the transaction that saves, updates or deletes the images, and stay locked until it commits.
+ * Files whose count reached zero are deleted only once that transaction commits, so a rollback never leaves rows
+ * whose file is gone. Each file is then deleted in its own transaction, while holding a lock on its count row, and
+ * only if no upload of the same content counted it again in the meantime.
+ *
+ * @author rvega
+ */
+@Slf4j
+@Component
+public class ImageContentReferences {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageStorage imageStorage;
+    private final ImageContentCache imageContentCache;
+
+    public ImageContentReferences(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  ImageStorage imageStorage, ImageContentCache imageContentCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Deletions run after the transaction that released the files has committed, so they need one of their own
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.imageStorage = imageStorage;
+        this.imageContentCache = imageContentCache;
+    }
+
+    /**
+     * Counts one more image referring to stored content. Must run in the transaction that saves the image.
+     *
+     * @param content The stored content.
+     * @param source  The uploaded file the content was stored from, stored again if the file was deleted concurrently.
+     * @throws UncheckedIOException If the file has to be stored again and cannot be.
+     */
+    public void acquire(ImageStorage.StoredContent content, InputStreamSource source) {
+        if (increment(content.contentHash()) == 0) {
+            try {
+                jdbcTemplate.update("insert into image_content (content_hash, file_size, ref_count) values (?, ?, 1)",
+                        content.contentHash(), content.size());
+            } catch (DuplicateKeyException e) {
+                // Another upload of the same content counted it first
+                increment(content.contentHash());
+            }
+        }
+        if (!imageStorage.load(content.contentHash()).exists()) {
+            try (InputStream stream = source.getInputStream()) {
+                imageStorage.store(stream);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot store image content " + content.contentHash(), e);
+            }
+        }
+    }
+
+    /**
+     * Counts one image less referring to each content, and deletes the files no image refers to any more once the
+     * current transaction commits. Must run in the transaction that deletes or updates the images.
+     *
+     * @param contentHashes The hashes of the files of the deleted or replaced images, once per image. Nulls are ignored.
+     */
+    public void release(Collection<String> contentHashes) {
+        Set<String> released = new LinkedHashSet<>();
+        for (String contentHash : contentHashes) {
+            if (contentHash != null) {
+                jdbcTemplate.update("update image_content set ref_count = ref_count - 1 where content_hash = ?", contentHash);
+                released.add(contentHash);
+            }
+        }
+        List<String> unreferenced = new ArrayList<>();
+        for (String contentHash : released) {
+            if (jdbcTemplate.update("delete from image_content where content_hash = ? and ref_count <= 0", contentHash) > 0) {
+                unreferenced.add(contentHash);
+            }
+        }
+        if (unreferenced.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteUnreferenced(unreferenced);
+                }
+            });
+        } else {
+            deleteUnreferenced(unreferenced);
+        }
+    }
+
+    /**
+     * Deletes stored files that were never counted, such as the files of an upload that failed.
+     *
+     * @param contentHashes The hashes of the stored files. Nulls are ignored.
+     */
+    public void deleteUnreferenced(Collection<String> contentHashes) {
+        contentHashes.stream().filter(Objects::nonNull).distinct().forEach(contentHash ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    // A locking read waits for an upload that is counting the same content
+                    if (jdbcTemplate.queryForList("select ref_count from image_content where content_hash = ? for update",
+                            Integer.class, contentHash).isEmpty()) {
+                        delete(contentHash);
+                    }
+                }));
+    }
+
+    private int increment(String contentHash) {
+        return jdbcTemplate.update("update image_content set ref_count = ref_count + 1 where content_hash = ?", contentHash);
+    }
+
+    private void delete(String contentHash) {
+        try {
+            imageStorage.delete(contentHash);
+            imageContentCache.evict(contentHash);
+        } catch (IOException e) {
+            // The references are already gone; the file is only wasted space
+            log.warn("Cannot delete unreferenced image content {}", contentHash, e);
+        }
+    }
+}
@@ -1,24 +1,36 @@
 package com.rvega.dreamshops.service.image;
 
+import com.rvega.dreamshops.dto.CacheStatsDto;
 import com.rvega.dreamshops.dto.ImageDto;
+import com.rvega.dreamshops.enums.ImageSize;
 import com.rvega.dreamshops.exceptions.ResourceNotFoundException;
+import com.rvega.dreamshops.exceptions.UploadLimitExceededException;
+import com.rvega.dreamshops.mapper.DtoMapper;
 import com.rvega.dreamshops.model.Image;
 import com.rvega.dreamshops.model.Product;
 import com.rvega.dreamshops.repository.ImageRepository;
+import com.rvega.dreamshops.service.catalog.CatalogVersion;
 import com.rvega.dreamshops.service.product.IProductService;
+import com.rvega.dreamshops.service.product.ProductCache;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.sql.rowset.serial.SerialBlob;
-import java.io.IOException;
-import java.sql.SQLException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * This class provides services related to image management in the e-commerce application.
  * It implements the {@link IImageService} interface and utilizes Spring's {@link Service} annotation.
+ * The image files are kept in the {@link ImageStorage}; the database only holds their metadata and content hash.
+ * Images with the same content share one file, counted by {@link ImageContentReferences}.
  *
  * @author rvega
  */
@@ -36,6 +48,20 @@ public class ImageService implements IImageService {
      */
     private final IProductService productService;
 
+    /**
+     * The {@link ProductCache} holding product DTOs, which embed the image list of each product.
+     */
+    private final ProductCache productCache;
+    private final CatalogVersion catalogVersion;
+    private final ImageStorage imageStorage;
+    private final ImageContentReferences imageContentReferences;
+    private final ImageBlobMigrator imageBlobMigrator;
+    private final ImageUploadPipeline imageUploadPipeline;
+    private final ImageVariantGenerator imageVariantGenerator;
+    private final ImageContentCache imageContentCache;
+    private final DtoMapper dtoMapper;
+    private final TransactionTemplate transactionTemplate;
+
     /**
      * Retrieves an image from the database by its ID.
      *
@@ -49,78 +75,157 @@ public class ImageService implements IImageService {
                 .orElseThrow(() -> new ResourceNotFoundException("No image found with id: " + id));
     }
 
+    /**
+     * Retrieves the file of an image, or one of its resized variants, from the image storage.
+     * Images whose file is still in the legacy blob column are migrated first, and get the hash of their file.
+     * Variants that were not generated yet are generated on the spot.
+     *
+     * @param image The image whose file to retrieve.
+     * @param size The size of the variant to retrieve, or null for the original file.
+     * @return The file of the image or of its variant.
+     * @throws ResourceNotFoundException If the image has no file.
+     */
+    @Override
+    public Resource getImageContent(Image image, ImageSize size) {
+        if (image.getContentHash() == null) {
+            image.setContentHash(imageBlobMigrator.migrate(image.getId()));
+        }
+        if (image.getContentHash() == null) {
+            throw new ResourceNotFoundException("No content found for image with id: " + image.getId());
+        }
+        Resource content = imageStorage.load(image.getContentHash());
+        if (!content.exists()) {
+            throw new ResourceNotFoundException("No content found for image with id: " + image.getId());
+        }
+        return size == null ? content : imageVariantGenerator.getVariant(image.getContentHash(), image.getFileType(), size);
+    }
+
+    /**
+     * Retrieves the content of a file from the in-memory image cache, reading it into the cache on a repeated miss.
+     *
+     * @param content The file of an image or of one of its variants, as returned by {@link #getImageContent}.
+     * @return A read-only direct buffer of the whole file, or null if the file is too large to be cached or is missed
+     * for the first time, in which case it is to be streamed from the storage.
+     */
+    @Override
+    public ByteBuffer getCachedImageContent(Resource content) {
+        return imageContentCache.get(content);
+    }
+
+    /**
+     * Retrieves the statistics of the in-memory image cache.
+     *
+     * @return The hit, miss and eviction counters of the cache.
+     */
+    @Override
+    public CacheStatsDto getCacheStats() {
+        return imageContentCache.getStats();
+    }
+
     /**
      * Deletes an image from the database by its ID.
+     * The image is looked up in the same transaction that deletes it, so its product is loaded from that session.
      *
      * @param id The ID of the image to delete.
      * @throws ResourceNotFoundException If no image is found with the given ID.
      */
     @Override
     public void deleteImageById(Long id) {
-        imageRepository.findById(id).ifPresentOrElse(imageRepository::delete, () -> {
-            throw new ResourceNotFoundException("No image found with id: " + id);
+        Product product = transactionTemplate.execute(status -> {
+            Image image = imageRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("No image found with id: " + id));
+            imageRepository.delete(image);
+            imageContentReferences.release(Stream.ofNullable(image.getContentHash()).toList());
+            return Hibernate.unproxy(image.getProduct(), Product.class);
         });
+        productCache.invalidate(product);
+        catalogVersion.bumpProduct(product.getId());
     }
 
     /**
-     * Saves multiple images associated with a product in the database.
+     * Saves multiple images associated with a product.
+     * The files are first streamed into the image storage in parallel by the {@link ImageUploadPipeline}, outside
+     * any transaction. The rows of all images are then written in one transaction, as JDBC batches when it commits.
+     * Download URLs are derived from the IDs when the images are mapped, so each row is written by its insert alone.
+     * The resized variants of the images are then generated in the background.
      *
      * @param productId The ID of the product to associate the images with.
      * @param files The list of {@link MultipartFile} objects representing the images to save.
      * @return A list of {@link ImageDto} objects representing the saved images.
+     * @throws UploadLimitExceededException If too many uploads are already in progress.
      * @throws RuntimeException If an error occurs while saving the images.
      */
     @Override
     public List<ImageDto> saveImages(Long productId, List<MultipartFile> files) {
         Product product = productService.getProductById(productId);
+        List<ImageStorage.StoredContent> contents = imageUploadPipeline.store(files);
 
-        List<ImageDto> savedImageDto = new ArrayList<>();
-        for (MultipartFile file : files) {
-            try {
-                Image image = new Image();
-                image.setFileName(file.getOriginalFilename());
-                image.setFileType(file.getContentType());
-                image.setImage(new SerialBlob(file.getBytes()));
-                image.setProduct(product);
-
-                String buildDownloadUrl = "/api/v1/images/image/download/";
-                String downloadUrl = buildDownloadUrl + image.getId();
-                image.setDownloadUrl(downloadUrl);
-                Image savedImage = imageRepository.save(image);
-
-                savedImage.setDownloadUrl(buildDownloadUrl + savedImage.getId());
-                imageRepository.save(savedImage);
-
-                ImageDto imageDto = new ImageDto();
-                imageDto.setId(savedImage.getId());
-                imageDto.setFileName(savedImage.getFileName());
-                imageDto.setDownloadUrl(savedImage.getDownloadUrl());
-                savedImageDto.add(imageDto);
-
-            } catch (IOException | SQLException e) {
-                throw new RuntimeException(e.getMessage());
-            }
+        List<ImageDto> savedImageDto;
+        try {
+            savedImageDto = transactionTemplate.execute(status -> {
+                List<ImageDto> imageDtos = new ArrayList<>();
+                for (int i = 0; i < files.size(); i++) {
+                    MultipartFile file = files.get(i);
+                    Image image = new Image();
+                    image.setFileName(file.getOriginalFilename());
+                    image.setFileType(file.getContentType());
+                    image.setContentHash(contents.get(i).contentHash());
+                    image.setFileSize(contents.get(i).size());
+                    image.setLastModified(LocalDateTime.now(ZoneOffset.UTC));
+                    image.setProduct(product);
+                    imageContentReferences.acquire(contents.get(i), file);
+                    imageDtos.add(dtoMapper.toImageDto(imageRepository.save(image)));
+                }
+                return imageDtos;
+            });
+        } catch (RuntimeException e) {
+            imageContentReferences.deleteUnreferenced(contents.stream().map(ImageStorage.StoredContent::contentHash).toList());
+            throw e;
+        }
+        productCache.invalidate(product);
+        catalogVersion.bumpProduct(productId);
+        for (int i = 0; i < files.size(); i++) {
+            imageVariantGenerator.generateAsync(contents.get(i).contentHash(), files.get(i).getContentType());
         }
         return savedImageDto;
     }
 
     /**
      * Updates an existing image in the database.
+     * The file is streamed into the image storage first, outside any transaction. The image row is then locked,
+     * so that the file released is the one the image has when it is replaced, even under concurrent updates.
      *
      * @param file The {@link MultipartFile} object representing the updated image.
      * @param imageId The ID of the image to update.
+     * @throws ResourceNotFoundException If no image is found with the specified identifier.
+     * @throws UploadLimitExceededException If too many uploads are already in progress.
      * @throws RuntimeException If an error occurs while updating the image.
      */
     @Override
     public void updateImage(MultipartFile file, Long imageId) {
-        Image image = getImageById(imageId);
+        ImageStorage.StoredContent content = imageUploadPipeline.store(List.of(file)).get(0);
+        Product product;
         try {
-            image.setFileName(file.getOriginalFilename());
-            image.setFileType(file.getContentType());
-            image.setImage(new SerialBlob(file.getBytes()));
-            imageRepository.save(image);
-        } catch (IOException | SQLException e) {
-            throw new RuntimeException(e.getMessage());
+            product = transactionTemplate.execute(status -> {
+                // Locked, so that of two concurrent updates the second one releases the file of the first
+                Image image = imageRepository.findLockedById(imageId)
+                        .orElseThrow(() -> new ResourceNotFoundException("No image found with id: " + imageId));
+                String previousContentHash = image.getContentHash();
+                image.setFileName(file.getOriginalFilename());
+                image.setFileType(file.getContentType());
+                image.setContentHash(content.contentHash());
+                image.setFileSize(content.size());
+                image.setLastModified(LocalDateTime.now(ZoneOffset.UTC));
+                imageContentReferences.acquire(content, file);
+                imageContentReferences.release(Stream.ofNullable(previousContentHash).toList());
+                return Hibernate.unproxy(image.getProduct(), Product.class);
+            });
+        } catch (RuntimeException e) {
+            imageContentReferences.deleteUnreferenced(List.of(content.contentHash()));
+            throw e;
         }
+        productCache.invalidate(product);
+        catalogVersion.bumpProduct(product.getId());
+        imageVariantGenerator.generateAsync(content.contentHash(), file.getContentType());
     }
 }
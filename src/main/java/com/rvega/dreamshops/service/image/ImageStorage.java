@@ -0,0 +1,69 @@
+package com.rvega.dreamshops.service.image;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stores the content of image files outside the database, addressed by the SHA-256 hash of the content.
+ * Storing the same content twice keeps a single copy, so a file may be shared by several images.
+ * Derived files, such as resized variants, are stored next to the content they were derived from.
+ *
+ * @author rvega
+ */
+public interface ImageStorage {
+    /**
+     * Stores the given content, unless content with the same hash is already stored.
+     * The hash and size are computed while the content is written, in a single pass.
+     *
+     * @param content The content to store. It is read to the end but not closed.
+     * @return The lowercase hex SHA-256 hash of the content, which addresses it from then on, and its size.
+     * @throws IOException If the content cannot be read or written.
+     */
+    StoredContent store(InputStream content) throws IOException;
+
+    /**
+     * Returns the stored content with the given hash.
+     *
+     * @param contentHash The hash returned when the content was stored.
+     * @return The content, which does not exist if it was never stored or has been deleted.
+     */
+    Resource load(String contentHash);
+
+    /**
+     * Stores a file derived from stored content, replacing any previous version of it.
+     *
+     * @param contentHash The hash of the content the file was derived from.
+     * @param variant     The name of the variant, made of lowercase letters, digits and dots.
+     * @param content     The content of the variant.
+     * @throws IOException If the variant cannot be written.
+     */
+    void storeVariant(String contentHash, String variant, byte[] content) throws IOException;
+
+    /**
+     * Returns a file derived from stored content.
+     *
+     * @param contentHash The hash of the content the file was derived from.
+     * @param variant     The name of the variant.
+     * @return The variant, which does not exist if it was never stored or has been deleted.
+     */
+    Resource loadVariant(String contentHash, String variant);
+
+    /**
+     * Deletes the stored content with the given hash, if any, and all its variants.
+     *
+     * @param contentHash The hash returned when the content was stored.
+     * @throws IOException If the content cannot be deleted.
+     */
+    void delete(String contentHash) throws IOException;
+
+    /**
+     * The address and size of stored content.
+     *
+     * @param contentHash The lowercase hex SHA-256 hash of the content.
+     * @param size        The size of the content in bytes.
+     */
+    record StoredContent(String contentHash, long size) {
+    }
+}
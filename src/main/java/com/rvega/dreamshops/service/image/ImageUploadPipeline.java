@@ -0,0 +1,100 @@
+package com.rvega.dreamshops.service.image;
+
+import com.rvega.dreamshops.exceptions.UploadLimitExceededException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the files of upload requests into the {@link ImageStorage}.
+ * <p>
+ * The files of a request are stored in parallel on a fixed pool of {@code image.upload.threads} threads, each one
+ * streamed from the multipart part into the storage while its hash and size are computed. At most
+ * {@code image.upload.maxConcurrentRequests} requests are processed at once; further requests are turned away
+ * with an {@link UploadLimitExceededException} instead of queueing up behind them.
+ *
+ * @author rvega
+ */
+@Component
+public class ImageUploadPipeline {
+    private final ImageStorage imageStorage;
+    private final ImageContentReferences imageContentReferences;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long retryAfterInSeconds;
+
+    public ImageUploadPipeline(ImageStorage imageStorage,
+                               ImageContentReferences imageContentReferences,
+                               @Value("${image.upload.threads:4}") int threads,
+                               @Value("${image.upload.maxConcurrentRequests:8}") int maxConcurrentRequests,
+                               @Value("${image.upload.retryAfterInSeconds:5}") long retryAfterInSeconds) {
+        this.imageStorage = imageStorage;
+        this.imageContentReferences = imageContentReferences;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "image-upload-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.permits = new Semaphore(maxConcurrentRequests);
+        this.retryAfterInSeconds = retryAfterInSeconds;
+    }
+
+    /**
+     * Stores the given files, in parallel.
+     * If any file fails, the files already stored for the request are deleted again, unless images refer to them.
+     *
+     * @param files The uploaded files.
+     * @return The stored content of each file, in the order of the files.
+     * @throws UploadLimitExceededException If too many uploads are already in progress.
+     * @throws UncheckedIOException If a file cannot be read or stored.
+     */
+    public List<ImageStorage.StoredContent> store(List<MultipartFile> files) {
+        if (!permits.tryAcquire()) {
+            throw new UploadLimitExceededException("Too many uploads in progress, please retry later.", retryAfterInSeconds);
+        }
+        try {
+            List<CompletableFuture<ImageStorage.StoredContent>> stored = files.stream()
+                    .map(file -> CompletableFuture.supplyAsync(() -> store(file), executor))
+                    .toList();
+            try {
+                CompletableFuture.allOf(stored.toArray(CompletableFuture[]::new)).join();
+            } catch (CompletionException e) {
+                imageContentReferences.deleteUnreferenced(stored.stream()
+                        .filter(future -> !future.isCompletedExceptionally())
+                        .map(future -> future.join().contentHash())
+                        .toList());
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            return stored.stream().map(CompletableFuture::join).toList();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private ImageStorage.StoredContent store(MultipartFile file) {
+        // Parts above the multipart threshold are read from their temporary file, never held in memory whole
+        try (InputStream content = file.getInputStream()) {
+            return imageStorage.store(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store " + file.getOriginalFilename() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,179 @@
+package com.rvega.dreamshops.service.image;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rvega.dreamshops.enums.ImageSize;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the resized variants of images with ImageIO, and stores them next to the original in the
+ * {@link ImageStorage}, which then serves as the variant cache.
+ * <p>
+ * Variants of new images are generated in the background on a pool of {@code image.variants.threads} threads, with
+ * a queue of {@code image.variants.queueSize} images; images that do not fit in the queue get their variants on
+ * their first request instead. Concurrent requests for a missing variant wait for a single generation.
+ * <p>
+ * Variants of PNG and GIF images are PNG, to keep their transparency; all others are JPEG. Images that already fit
+ * a size, and files ImageIO cannot read, are served as they are for that size.
+ *
+ * @author rvega
+ */
+@Slf4j
+@Component
+public class ImageVariantGenerator {
+    private final ImageStorage imageStorage;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<Resource>> inProgress = new ConcurrentHashMap<>();
+    // Content that has no variant for a size, remembered so that it is not decoded again on every request
+    private final Cache<String, Boolean> servedAsIs = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    public ImageVariantGenerator(ImageStorage imageStorage,
+                                 @Value("${image.variants.threads:2}") int threads,
+                                 @Value("${image.variants.queueSize:1000}") int queueSize) {
+        this.imageStorage = imageStorage;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Generates all variants of an image in the background.
+     *
+     * @param contentHash The hash of the image file.
+     * @param fileType    The content type of the image file.
+     */
+    public void generateAsync(String contentHash, String fileType) {
+        executor.execute(() -> {
+            for (ImageSize size : ImageSize.values()) {
+                try {
+                    getVariant(contentHash, fileType, size);
+                } catch (RuntimeException e) {
+                    log.warn("Cannot generate the {} variant of image content {}", size, contentHash, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns a variant of an image, generating and storing it first if needed.
+     *
+     * @param contentHash The hash of the image file.
+     * @param fileType    The content type of the image file.
+     * @param size        The size of the variant.
+     * @return The variant, or the image file itself if it already fits the size or cannot be resized.
+     * @throws UncheckedIOException If the image file cannot be read or the variant cannot be stored.
+     */
+    public Resource getVariant(String contentHash, String fileType, ImageSize size) {
+        String variant = variantName(fileType, size);
+        Resource stored = imageStorage.loadVariant(contentHash, variant);
+        if (stored.exists()) {
+            return stored;
+        }
+        String key = contentHash + "-" + variant;
+        if (servedAsIs.getIfPresent(key) != null) {
+            return imageStorage.load(contentHash);
+        }
+        CompletableFuture<Resource> generation = new CompletableFuture<>();
+        CompletableFuture<Resource> running = inProgress.putIfAbsent(key, generation);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            Resource generated = generate(contentHash, variant, size);
+            if (generated == null) {
+                servedAsIs.put(key, Boolean.TRUE);
+                generated = imageStorage.load(contentHash);
+            }
+            generation.complete(generated);
+            return generated;
+        } catch (RuntimeException e) {
+            generation.completeExceptionally(e);
+            throw e;
+        } finally {
+            inProgress.remove(key);
+        }
+    }
+
+    /**
+     * @return The resized variant, or null if the image already fits the size or cannot be read.
+     */
+    private Resource generate(String contentHash, String variant, ImageSize size) {
+        try {
+            BufferedImage original;
+            try (InputStream content = imageStorage.load(contentHash).getInputStream()) {
+                original = ImageIO.read(content);
+            }
+            if (original == null || Math.max(original.getWidth(), original.getHeight()) <= size.getMaxDimension()) {
+                return null;
+            }
+            boolean png = variant.endsWith(".png");
+            BufferedImage resized = resize(original, size.getMaxDimension(), png);
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            ImageIO.write(resized, png ? "png" : "jpeg", encoded);
+            imageStorage.storeVariant(contentHash, variant, encoded.toByteArray());
+            return imageStorage.loadVariant(contentHash, variant);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot generate the " + variant + " variant of image content " + contentHash, e);
+        }
+    }
+
+    /**
+     * Scales an image down to fit a square, halving it in steps first, which keeps bilinear scaling sharp.
+     */
+    private static BufferedImage resize(BufferedImage image, int maxDimension, boolean keepAlpha) {
+        double scale = (double) maxDimension / Math.max(image.getWidth(), image.getHeight());
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        int type = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = step;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    private static String variantName(String fileType, ImageSize size) {
+        boolean png = "image/png".equalsIgnoreCase(fileType) || "image/gif".equalsIgnoreCase(fileType);
+        return size.name().toLowerCase() + (png ? ".png" : ".jpg");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,129 @@
+package com.rvega.dreamshops.service.image;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ImageStorage} keeping each file on the local disk, under {@code image.storage.location}.
+ * <p>
+ * A file is named by its hash and sharded by the first two pairs of hex digits, as in {@code 3f/a2/3fa2...},
+ * so no directory grows beyond a few thousand entries. Uploads are written to a temporary file in the same
+ * directory tree while their hash is computed, then moved into place atomically, so readers never see a partial file.
+ * Variants are named after the file they derive from, as in {@code 3fa2...-thumbnail.jpg}, in the same directory.
+ *
+ * @author rvega
+ */
+@Component
+public class LocalDiskImageStorage implements ImageStorage {
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern VARIANT = Pattern.compile("[a-z0-9.]+");
+
+    private final Path root;
+
+    public LocalDiskImageStorage(@Value("${image.storage.location}") Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the image storage directory " + this.root, e);
+        }
+    }
+
+    @Override
+    public StoredContent store(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        Path upload = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            long size = Files.copy(new DigestInputStream(content, digest), upload, StandardCopyOption.REPLACE_EXISTING);
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            Path file = resolve(contentHash);
+            if (!Files.exists(file)) {
+                Files.createDirectories(file.getParent());
+                try {
+                    Files.move(upload, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // The same content was stored concurrently
+                }
+            }
+            return new StoredContent(contentHash, size);
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    @Override
+    public Resource load(String contentHash) {
+        return new FileSystemResource(resolve(contentHash));
+    }
+
+    @Override
+    public void storeVariant(String contentHash, String variant, byte[] content) throws IOException {
+        Path file = resolveVariant(contentHash, variant);
+        Files.createDirectories(file.getParent());
+        Path upload = Files.createTempFile(root, "variant-", ".tmp");
+        try {
+            Files.write(upload, content);
+            Files.move(upload, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    @Override
+    public Resource loadVariant(String contentHash, String variant) {
+        return new FileSystemResource(resolveVariant(contentHash, variant));
+    }
+
+    @Override
+    public void delete(String contentHash) throws IOException {
+        Path file = resolve(contentHash);
+        Files.deleteIfExists(file);
+        if (Files.isDirectory(file.getParent())) {
+            try (DirectoryStream<Path> variants = Files.newDirectoryStream(file.getParent(), contentHash + "-*")) {
+                for (Path variant : variants) {
+                    Files.deleteIfExists(variant);
+                }
+            }
+        }
+    }
+
+    private Path resolve(String contentHash) {
+        // Hashes come from the database; checking them keeps a corrupted row from pointing outside the root
+        if (contentHash == null || !CONTENT_HASH.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Invalid image content hash: " + contentHash);
+        }
+        return root.resolve(contentHash.substring(0, 2)).resolve(contentHash.substring(2, 4)).resolve(contentHash);
+    }
+
+    private Path resolveVariant(String contentHash, String variant) {
+        if (variant == null || !VARIANT.matcher(variant).matches()) {
+            throw new IllegalArgumentException("Invalid image variant: " + variant);
+        }
+        Path file = resolve(contentHash);
+        return file.resolveSibling(file.getFileName() + "-" + variant);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.rvega.dreamshops.service.order;
 import com.rvega.dreamshops.dto.OrderDto;
 import com.rvega.dreamshops.enums.OrderStatus;
 import com.rvega.dreamshops.exceptions.ResourceNotFoundException;
+import com.rvega.dreamshops.mapper.DtoMapper;
 import com.rvega.dreamshops.model.Cart;
 import com.rvega.dreamshops.model.Order;
 import com.rvega.dreamshops.model.OrderItem;
@@ -10,8 +11,9 @@ import com.rvega.dreamshops.model.Product;
 import com.rvega.dreamshops.repository.OrderRepository;
 import com.rvega.dreamshops.repository.ProductRepository;
 import com.rvega.dreamshops.service.cart.CartService;
+import com.rvega.dreamshops.service.catalog.CatalogVersion;
+import com.rvega.dreamshops.service.product.ProductCache;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -40,9 +42,19 @@ public class OrderService implements IOrderService {
     private final CartService cartService;
 
     /**
-     * Mapper for converting entities to DTOs and vice versa.
+     * Cache of product DTOs, which expose the inventory changed by an order.
      */
-    private final ModelMapper modelMapper;
+    private final ProductCache productCache;
+
+    /**
+     * Version counters of the catalog, whose product tags change with the inventory.
+     */
+    private final CatalogVersion catalogVersion;
+
+    /**
+     * Mapper for converting entities to DTOs.
+     */
+    private final DtoMapper dtoMapper;
 
     /**
      * Places an order for a user based on their cart contents.
@@ -98,6 +110,8 @@ public class OrderService implements IOrderService {
 
             // Save the updated product to persist the inventory change.
             productRepository.save(product);
+            productCache.invalidate(product);
+            catalogVersion.bumpProduct(product.getId());
 
             // Create and return a new OrderItem linked to the order and product,
             // with the cart item's quantity and unit price.
@@ -132,6 +146,7 @@ public class OrderService implements IOrderService {
      * @throws ResourceNotFoundException If the order does not exist.
      */
     @Override
+    @Transactional(readOnly = true)
     public OrderDto getOrder(Long orderId) {
         return orderRepository.findById(orderId)
                 .map(this::convertToDto)
@@ -145,6 +160,7 @@ public class OrderService implements IOrderService {
      * @return A list of OrderDto objects.
      */
     @Override
+    @Transactional(readOnly = true)
     public List<OrderDto> getUserOrders(Long userId) {
         List<Order> orders = orderRepository.findByUserId(userId);
         return orders.stream().map(this::convertToDto).toList();
@@ -158,6 +174,6 @@ public class OrderService implements IOrderService {
      */
     @Override
     public OrderDto convertToDto(Order order) {
-        return modelMapper.map(order, OrderDto.class);
+        return dtoMapper.toOrderDto(order);
     }
 }
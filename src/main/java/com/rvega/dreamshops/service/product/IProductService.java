@@ -1,26 +1,43 @@
 package com.rvega.dreamshops.service.product;
+import com.rvega.dreamshops.dto.BulkProductUpdateResultDto;
+import com.rvega.dreamshops.dto.CacheStatsDto;
 import com.rvega.dreamshops.dto.ProductDto;
+import com.rvega.dreamshops.dto.ProductImportResultDto;
+import com.rvega.dreamshops.dto.ProductPageDto;
+import com.rvega.dreamshops.dto.ProductSearchDto;
+import com.rvega.dreamshops.enums.ProductFacet;
+import com.rvega.dreamshops.enums.ProductImportFormat;
 import com.rvega.dreamshops.model.Product;
 import com.rvega.dreamshops.request.AddProductRequest;
+import com.rvega.dreamshops.request.BulkProductUpdateRequest;
+import com.rvega.dreamshops.request.ProductPageRequest;
 import com.rvega.dreamshops.request.ProductUpdateRequest;
 
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface IProductService {
     Product addProduct(AddProductRequest product);
     Product getProductById(Long id);
+    ProductDto getProductDtoById(Long id);
     void deleteProductById(Long id);
     Product updateProduct(ProductUpdateRequest product, Long productId);
-    List<Product> getAllProducts();
-    List<Product> getProductsByCategory(String category);
-    List<Product> getProductsByBrand(String brand);
-    List<Product> getProductsByCategoryAndBrand(String category, String brand);
-    List<Product> getProductsByName(String name);
-    List<Product> getProductsByBrandAndName(String category, String name);
+    ProductPageDto getAllProducts(ProductPageRequest page);
+    ProductPageDto getProductsByCategory(String category, ProductPageRequest page);
+    ProductPageDto getProductsByBrand(String brand, ProductPageRequest page);
+    ProductPageDto getProductsByCategoryAndBrand(String category, String brand, ProductPageRequest page);
+    ProductPageDto getProductsByName(String name, ProductPageRequest page);
+    ProductPageDto getProductsByBrandAndName(String category, String name, ProductPageRequest page);
     Long countProductsByBrandAndName(String brand, String name);
-
-    List<ProductDto> getConvertedProducts(List<Product> products);
+    ProductSearchDto searchProducts(String query, Map<ProductFacet, List<String>> filters, int page, int size);
+    void exportProducts(Consumer<ProductDto> sink);
+    ProductImportResultDto importProducts(InputStream input, ProductImportFormat format);
+    BulkProductUpdateResultDto updateProductsInBulk(List<BulkProductUpdateRequest> requests);
 
     ProductDto convertToDto(Product product);
+
+    List<CacheStatsDto> getCacheStats();
 }
@@ -0,0 +1,171 @@
+package com.rvega.dreamshops.service.product;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.rvega.dreamshops.config.ReadWriteRoutingDataSource;
+import com.rvega.dreamshops.dto.CacheStatsDto;
+import com.rvega.dreamshops.dto.ProductDto;
+import com.rvega.dreamshops.dto.ProductPageDto;
+import com.rvega.dreamshops.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-process cache of product DTOs and product listing pages.
+ * Both caches are bounded in size with Caffeine's W-TinyLFU eviction and expire after a fixed time to live.
+ * <p>
+ * Writes invalidate precisely: a changed product evicts its own DTO and only the listing pages whose
+ * filters match the product, so unrelated brands and categories stay cached.
+ * <p>
+ * Writes made inside a transaction invalidate again once it commits, since a concurrent load may have cached the
+ * rows as they were before the commit. A load that overlaps any invalidation is not kept in the cache either,
+ * because evicting the pages of a cache does not cancel the loads still in flight.
+ * <p>
+ * Loads read from the primary database, never from a lagging read replica: a stale load would stay cached for the
+ * whole time to live, and would be served under the ETag of the current catalog version.
+ *
+ * @author rvega
+ */
+@Component
+public class ProductCache {
+    private final Cache<Long, ProductDto> products;
+    private final Cache<ProductQuery, ProductPageDto> pages;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCache(@Value("${product.cache.maxSize:10000}") long maxSize,
+                        @Value("${product.cache.expirationInMinutes:10}") long expirationInMinutes) {
+        Duration ttl = Duration.ofMinutes(expirationInMinutes);
+        this.products = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.pages = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+    }
+
+    /**
+     * Returns the cached DTO of a product, loading it on a miss.
+     *
+     * @param id     The ID of the product.
+     * @param loader Loads the DTO when it is not cached. Exceptions it throws are propagated and nothing is cached.
+     * @return The product DTO.
+     */
+    ProductDto getProduct(Long id, Function<Long, ProductDto> loader) {
+        long invalidationsBefore = invalidations.get();
+        ProductDto product = products.get(id, key -> ReadWriteRoutingDataSource.readFromPrimary(() -> loader.apply(key)));
+        if (invalidations.get() != invalidationsBefore) {
+            products.asMap().remove(id, product);
+        }
+        return product;
+    }
+
+    /**
+     * Returns the cached DTOs of several products, loading all the missing ones at once.
+     *
+     * @param ids    The IDs of the products.
+     * @param loader Loads the DTOs of the IDs that are not cached. IDs it returns no DTO for are left out.
+     * @return The product DTOs, keyed by product ID.
+     */
+    Map<Long, ProductDto> getProducts(Collection<Long> ids,
+                                      Function<Set<? extends Long>, Map<? extends Long, ? extends ProductDto>> loader) {
+        long invalidationsBefore = invalidations.get();
+        Map<Long, ProductDto> found = products.getAll(ids, keys -> ReadWriteRoutingDataSource.readFromPrimary(() -> loader.apply(keys)));
+        if (invalidations.get() != invalidationsBefore) {
+            found.forEach(products.asMap()::remove);
+        }
+        return found;
+    }
+
+    /**
+     * Returns a cached listing page, loading it on a miss.
+     *
+     * @param query  The listing query identifying the page.
+     * @param loader Loads the page when it is not cached. Exceptions it throws are propagated and nothing is cached.
+     * @return The listing page.
+     */
+    ProductPageDto getPage(ProductQuery query, Function<ProductQuery, ProductPageDto> loader) {
+        long invalidationsBefore = invalidations.get();
+        ProductPageDto page = pages.get(query, key -> ReadWriteRoutingDataSource.readFromPrimary(() -> loader.apply(key)));
+        if (invalidations.get() != invalidationsBefore) {
+            pages.asMap().remove(query, page);
+        }
+        return page;
+    }
+
+    /**
+     * Evicts the DTO of a product and every listing page the product may appear in.
+     * When a write changes the name, brand or category of a product, call it with the product state
+     * both before and after the change.
+     *
+     * @param product The added, changed or deleted product.
+     */
+    public void invalidate(Product product) {
+        // The product may be changed before the transaction commits, so its current attributes are matched
+        Long id = product.getId();
+        String category = product.getCategory() != null ? product.getCategory().getName() : null;
+        String brand = product.getBrand();
+        String name = product.getName();
+        invalidateNowAndAfterCommit(() -> {
+            products.invalidate(id);
+            pages.asMap().keySet().removeIf(query -> query.matches(category, brand, name));
+        });
+    }
+
+    /**
+     * Evicts the DTOs of several products and every listing page, for bulk writes that change the price or stock of
+     * products without loading them. Any page may list them, and a price change can reorder pages sorted by price.
+     *
+     * @param productIds The IDs of the changed products.
+     */
+    public void invalidateProducts(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        invalidateNowAndAfterCommit(() -> {
+            products.invalidateAll(ids);
+            pages.invalidateAll();
+        });
+    }
+
+    /**
+     * Evicts every cached product and page, for changes that affect the whole catalog such as a category rename.
+     */
+    public void invalidateAll() {
+        invalidateNowAndAfterCommit(() -> {
+            products.invalidateAll();
+            pages.invalidateAll();
+        });
+    }
+
+    /**
+     * @return The counters of the product and page caches.
+     */
+    public List<CacheStatsDto> getStats() {
+        return List.of(toDto("products", products), toDto("productPages", pages));
+    }
+
+    private void invalidateNowAndAfterCommit(Runnable invalidation) {
+        invalidations.incrementAndGet();
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidations.incrementAndGet();
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private static CacheStatsDto toDto(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDto(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+}
@@ -0,0 +1,68 @@
+package com.rvega.dreamshops.service.product;
+
+import com.rvega.dreamshops.enums.ProductSort;
+import com.rvega.dreamshops.repository.projection.ProductView;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the opaque continuation tokens of the paginated product listings.
+ * A token holds the sort order and the keyset (price and ID) of the last product of a page,
+ * so the next page is read with a range predicate instead of an OFFSET.
+ *
+ * @author rvega
+ */
+final class ProductCursor {
+    private static final String SEPARATOR = ":";
+
+    private ProductCursor() {
+    }
+
+    /**
+     * Builds the token pointing right after the given product.
+     *
+     * @param sort The sort order of the listing.
+     * @param last The last product of the current page.
+     * @return The encoded continuation token.
+     */
+    static String encode(ProductSort sort, ProductView last) {
+        String raw = sort.isPriceSort()
+                ? sort.name() + SEPARATOR + last.getPrice().toPlainString() + SEPARATOR + last.getId()
+                : sort.name() + SEPARATOR + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token into the scroll position to resume the listing from.
+     *
+     * @param token The continuation token, or null for the first page.
+     * @param sort  The sort order requested by the client.
+     * @return The keyset scroll position to read the next page from.
+     * @throws IllegalArgumentException If the token is malformed or was issued for another sort order.
+     */
+    static ScrollPosition decode(String token, ProductSort sort) {
+        if (token == null || token.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (!sort.name().equals(parts[0]) || parts.length != (sort.isPriceSort() ? 3 : 2)) {
+                throw new IllegalArgumentException("Invalid cursor for sort " + sort);
+            }
+            Map<String, Object> keys = new LinkedHashMap<>();
+            if (sort.isPriceSort()) {
+                keys.put("price", new BigDecimal(parts[1]));
+            }
+            keys.put("id", Long.valueOf(parts[parts.length - 1]));
+            return ScrollPosition.forward(keys);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
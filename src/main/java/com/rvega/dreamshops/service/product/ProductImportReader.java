@@ -0,0 +1,207 @@
+package com.rvega.dreamshops.service.product;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rvega.dreamshops.enums.ProductImportFormat;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.request.AddProductRequest;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the rows of a bulk product import one at a time, so an upload of any size is never held in memory.
+ * A row that cannot be read is returned with an error instead of failing the whole import.
+ * <p>
+ * CSV uploads start with a header row naming the columns, in any order; quoted fields may contain commas,
+ * line breaks and doubled quotes. NDJSON uploads hold one add product request per line.
+ *
+ * @author rvega
+ */
+final class ProductImportReader implements Iterator<ProductImportReader.Row>, Closeable {
+    private static final List<String> CSV_COLUMNS = List.of("name", "brand", "price", "inventory", "description", "category");
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of("name", "brand", "price", "category");
+
+    /**
+     * A row of the upload.
+     *
+     * @param number  The one-based number of the row, not counting the CSV header.
+     * @param request The product read from the row, or null if it could not be read.
+     * @param error   Why the row could not be read, or null.
+     */
+    record Row(int number, AddProductRequest request, String error) {
+    }
+
+    private final BufferedReader reader;
+    private final ProductImportFormat format;
+    private final ObjectMapper objectMapper;
+    private final int[] columnIndexes = new int[CSV_COLUMNS.size()];
+    private int number;
+    private Row next;
+
+    /**
+     * @param input        The upload.
+     * @param format       The format of the upload.
+     * @param objectMapper The mapper reading NDJSON rows.
+     * @throws IOException              If the upload cannot be read.
+     * @throws IllegalArgumentException If the CSV header misses a required column.
+     */
+    ProductImportReader(InputStream input, ProductImportFormat format, ObjectMapper objectMapper) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+        if (format == ProductImportFormat.CSV) {
+            readHeader();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = format == ProductImportFormat.CSV ? readCsvRow() : readJsonRow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        List<String> header = readCsvRecord();
+        List<String> names = header == null ? List.of() : header.stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+        for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+            columnIndexes[i] = names.indexOf(CSV_COLUMNS.get(i));
+            if (columnIndexes[i] < 0 && REQUIRED_CSV_COLUMNS.contains(CSV_COLUMNS.get(i))) {
+                throw new IllegalArgumentException("Missing CSV column: " + CSV_COLUMNS.get(i));
+            }
+        }
+    }
+
+    private Row readCsvRow() throws IOException {
+        List<String> fields;
+        do {
+            fields = readCsvRecord();
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isBlank());
+
+        number++;
+        AddProductRequest request = new AddProductRequest();
+        request.setName(column(fields, "name"));
+        request.setBrand(column(fields, "brand"));
+        request.setDescription(column(fields, "description"));
+        String category = column(fields, "category");
+        request.setCategory(category == null ? null : new Category(category));
+        String price = column(fields, "price");
+        String inventory = column(fields, "inventory");
+        try {
+            request.setPrice(price == null ? null : new BigDecimal(price));
+        } catch (NumberFormatException e) {
+            return new Row(number, request, "Invalid price: " + price);
+        }
+        try {
+            request.setInventory(inventory == null ? 0 : Integer.parseInt(inventory));
+        } catch (NumberFormatException e) {
+            return new Row(number, request, "Invalid inventory: " + inventory);
+        }
+        return new Row(number, request, null);
+    }
+
+    /**
+     * @return The trimmed value of a column, or null if the column is absent or the value blank.
+     */
+    private String column(List<String> fields, String name) {
+        int index = columnIndexes[CSV_COLUMNS.indexOf(name)];
+        if (index < 0 || index >= fields.size() || fields.get(index).isBlank()) {
+            return null;
+        }
+        return fields.get(index).trim();
+    }
+
+    /**
+     * Reads the fields of the next CSV record, which may span several lines when a quoted field holds line breaks.
+     *
+     * @return The fields of the record, or null at the end of the upload.
+     */
+    private List<String> readCsvRecord() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    private Row readJsonRow() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        number++;
+        try {
+            return new Row(number, objectMapper.readValue(line, AddProductRequest.class), null);
+        } catch (JsonProcessingException e) {
+            return new Row(number, null, "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.rvega.dreamshops.service.product;
+
+import com.rvega.dreamshops.enums.ProductSort;
+import com.rvega.dreamshops.request.ProductPageRequest;
+
+/**
+ * Identifies one page of a product listing in the {@link ProductCache}.
+ * A null filter means the listing is not filtered on that attribute, so the query of all products has no filters.
+ * Filters match ignoring case, like the default MySQL collation the listings are queried with.
+ *
+ * @param category The category name the listing is filtered by, or null.
+ * @param brand    The brand the listing is filtered by, or null.
+ * @param name     The product name the listing is filtered by, or null.
+ * @param cursor   The continuation token of the page, or null for the first page.
+ * @param limit    The page size.
+ * @param sort     The sort order of the listing.
+ */
+record ProductQuery(String category, String brand, String name, String cursor, int limit, ProductSort sort) {
+
+    static ProductQuery of(String category, String brand, String name, ProductPageRequest page) {
+        return new ProductQuery(category, brand, name, page.getCursor(), page.getLimit(), page.getSort());
+    }
+
+    /**
+     * Tells whether a product with the given attributes can appear in the result of this query.
+     *
+     * @param productCategory The category name of the product, or null.
+     * @param productBrand    The brand of the product.
+     * @param productName     The name of the product.
+     * @return True if the product satisfies every filter of the query.
+     */
+    boolean matches(String productCategory, String productBrand, String productName) {
+        return (category == null || category.equalsIgnoreCase(productCategory))
+                && (brand == null || brand.equalsIgnoreCase(productBrand))
+                && (name == null || name.equalsIgnoreCase(productName));
+    }
+}
@@ -1,31 +1,87 @@
 package com.rvega.dreamshops.service.product;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rvega.dreamshops.dto.BulkProductUpdateResultDto;
+import com.rvega.dreamshops.dto.CacheStatsDto;
 import com.rvega.dreamshops.dto.ImageDto;
 import com.rvega.dreamshops.dto.ProductDto;
+import com.rvega.dreamshops.dto.ProductImportResultDto;
+import com.rvega.dreamshops.dto.ProductImportRowDto;
+import com.rvega.dreamshops.dto.ProductPageDto;
+import com.rvega.dreamshops.dto.ProductSearchDto;
+import com.rvega.dreamshops.enums.ProductFacet;
+import com.rvega.dreamshops.enums.ProductImportFormat;
+import com.rvega.dreamshops.enums.ProductSort;
 import com.rvega.dreamshops.exceptions.AlreadyExistsException;
 import com.rvega.dreamshops.exceptions.ResourceNotFoundException;
+import com.rvega.dreamshops.mapper.DtoMapper;
 import com.rvega.dreamshops.model.Category;
 import com.rvega.dreamshops.model.Image;
 import com.rvega.dreamshops.model.Product;
-import com.rvega.dreamshops.repository.CategoryRepository;
 import com.rvega.dreamshops.repository.ImageRepository;
 import com.rvega.dreamshops.repository.ProductRepository;
+import com.rvega.dreamshops.repository.projection.ImageView;
+import com.rvega.dreamshops.repository.projection.ProductView;
 import com.rvega.dreamshops.request.AddProductRequest;
+import com.rvega.dreamshops.request.BulkProductUpdateRequest;
+import com.rvega.dreamshops.request.ProductPageRequest;
 import com.rvega.dreamshops.request.ProductUpdateRequest;
+import com.rvega.dreamshops.service.catalog.CatalogVersion;
+import com.rvega.dreamshops.service.category.ICategoryService;
+import com.rvega.dreamshops.service.image.ImageContentReferences;
+import com.rvega.dreamshops.service.search.ProductSearchIndex;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService implements IProductService {
+    private static final int IMAGE_BATCH_SIZE = 500;
+    private static final int IMPORT_CHUNK_SIZE = 500;
+    private static final int BULK_UPDATE_BATCH_SIZE = 500;
+    private static final String BULK_UPDATE_SQL =
+            "update product set price = coalesce(?, price), inventory = coalesce(?, inventory) where id = ?";
+
     private final ProductRepository productRepository;
-    private final CategoryRepository categoryRepository;
-    private final ModelMapper modelMapper;
+    private final ICategoryService categoryService;
+    private final DtoMapper dtoMapper;
     private final ImageRepository imageRepository;
+    private final ProductCache productCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final CatalogVersion catalogVersion;
+    private final ImageContentReferences imageContentReferences;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
 
     /**
      * Adds a new product to the database. If the product already exists, an exception is thrown.
@@ -33,27 +89,39 @@ public class ProductService implements IProductService {
      * @param request The request object containing the product details.
      * @return The saved product.
      * @throws AlreadyExistsException If the product with the same name and brand already exists.
+     * @throws IllegalArgumentException If the price is missing or negative.
      */
     @Override
     public Product addProduct(AddProductRequest request) {
+        requireValidPrice(request.getPrice());
         if (productExists(request.getName(), request.getBrand())) {
             throw new AlreadyExistsException(request.getName() + " " + request.getBrand() + " already exists, you may update it!");
         }
 
-        Category category = Optional.ofNullable(categoryRepository.findByName(request.getCategory().getName()))
-                .orElseGet(() -> {
-                    Category newCategory = new Category(request.getCategory().getName());
-                    return categoryRepository.save(newCategory);
-                });
-
+        Category category = resolveCategory(request.getCategory().getName());
         request.setCategory(category);
-        return productRepository.save(createProduct(request, category));
+        Product product = productRepository.save(createProduct(request, category));
+        productCache.invalidate(product);
+        productSearchIndex.index(product);
+        catalogVersion.bumpProduct(product.getId());
+        return product;
     }
 
     private Boolean productExists(String name, String brand) {
         return productRepository.existsByNameAndBrand(name, brand);
     }
 
+    /**
+     * Finds a category by name, creating it if it does not exist yet.
+     *
+     * @param name The name of the category.
+     * @return The existing or created category.
+     */
+    private Category resolveCategory(String name) {
+        return Optional.ofNullable(categoryService.getCategoryByName(name))
+                .orElseGet(() -> categoryService.addCategory(new Category(name)));
+    }
+
     /**
      * Creates a new Product object using the provided request and category.
      *
@@ -86,6 +154,19 @@ public class ProductService implements IProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found!"));
     }
 
+    /**
+     * Retrieves the DTO of a product, from the cache or else from the database.
+     *
+     * @param id The unique identifier of the product to retrieve.
+     * @return The product DTO, including its images.
+     * @throws ResourceNotFoundException If no product is found with the specified identifier.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductDto getProductDtoById(Long id) {
+        return productCache.getProduct(id, productId -> convertToDto(getProductById(productId)));
+    }
+
     /**
      * Deletes a product from the database by its unique identifier.
      *
@@ -94,11 +175,15 @@ public class ProductService implements IProductService {
      */
     @Override
     public void deleteProductById(Long id) {
-        productRepository.findById(id)
-                .ifPresentOrElse(productRepository::delete,
-                        () -> {
-                            throw new ResourceNotFoundException("Product not found!");
-                        });
+        Product product = transactionTemplate.execute(status -> {
+            Product found = productRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product not found!"));
+            productRepository.delete(found);
+            imageContentReferences.release(found.getImages().stream().map(Image::getContentHash).toList());
+            return found;
+        });
+        productCache.invalidate(product);
+        productSearchIndex.remove(product.getId());
+        catalogVersion.removeProduct(product.getId());
     }
 
     /**
@@ -108,13 +193,28 @@ public class ProductService implements IProductService {
      * @param productId The unique identifier of the product to update.
      * @return The updated product. If no product is found with the specified identifier, a {@link ResourceNotFoundException} is thrown.
      * @throws ResourceNotFoundException If no product is found with the specified identifier.
+     * @throws IllegalArgumentException If the price is missing or negative.
      */
     @Override
     public Product updateProduct(ProductUpdateRequest request, Long productId) {
-        return productRepository.findById(productId)
+        requireValidPrice(request.getPrice());
+        Product product = productRepository.findById(productId)
                 .map(existingProduct -> updateExistingProduct(existingProduct, request))
                 .map(productRepository::save)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found!"));
+        productCache.invalidate(product);
+        productSearchIndex.index(product);
+        catalogVersion.bumpProduct(product.getId());
+        return product;
+    }
+
+    private static void requireValidPrice(BigDecimal price) {
+        if (price == null) {
+            throw new IllegalArgumentException("Price is required");
+        }
+        if (price.signum() < 0) {
+            throw new IllegalArgumentException("Price must be zero or more");
+        }
     }
 
     /**
@@ -125,84 +225,366 @@ public class ProductService implements IProductService {
      * @return The updated product.
      */
     private Product updateExistingProduct(Product existingProduct, ProductUpdateRequest request) {
+        // Evict the pages listing the product under its old name, brand or category
+        productCache.invalidate(existingProduct);
+
         existingProduct.setName(request.getName());
         existingProduct.setBrand(request.getBrand());
         existingProduct.setPrice(request.getPrice());
         existingProduct.setInventory(request.getInventory());
         existingProduct.setDescription(request.getDescription());
 
-        Category category = categoryRepository.findByName(request.getCategory().getName());
+        Category category = categoryService.getCategoryByName(request.getCategory().getName());
         existingProduct.setCategory(category);
         return existingProduct;
     }
 
     /**
-     * Retrieves all products from the database.
+     * Retrieves one page of all products, from the cache or else from the database.
      *
-     * @return A list of all products in the database. If no products are found, an empty list is returned.
+     * @param page The cursor, size and sort order of the page to retrieve.
+     * @return A page of product DTOs. If no products are found, an empty page is returned.
+     * @throws IllegalArgumentException If the cursor is malformed or was issued for another sort order.
      */
     @Override
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    @Transactional(readOnly = true)
+    public ProductPageDto getAllProducts(ProductPageRequest page) {
+        return productCache.getPage(ProductQuery.of(null, null, null, page),
+                query -> getConvertedPage(productRepository.findAllViewsBy(position(page), page.getSort().toSort(), Limit.of(page.getLimit())), page.getSort()));
     }
 
     /**
-     * Retrieves a list of products from the database that belong to a specific category.
+     * Retrieves one page of the products, from the cache or else from the database, that belong to a specific category.
      *
      * @param category The name of the category to filter products by.
-     * @return A list of products that belong to the specified category. If no products are found, an empty list is returned.
+     * @param page     The cursor, size and sort order of the page to retrieve.
+     * @return A page of product DTOs that belong to the specified category. If no products are found, an empty page is returned.
      */
     @Override
-    public List<Product> getProductsByCategory(String category) {
-        return productRepository.findByCategoryName(category);
+    @Transactional(readOnly = true)
+    public ProductPageDto getProductsByCategory(String category, ProductPageRequest page) {
+        return productCache.getPage(ProductQuery.of(category, null, null, page),
+                query -> getConvertedPage(productRepository.findByCategoryName(category, position(page), page.getSort().toSort(), Limit.of(page.getLimit())), page.getSort()));
     }
 
     /**
-     * Retrieves a list of products from the database that belong to a specific brand.
+     * Retrieves one page of the products, from the cache or else from the database, that belong to a specific brand.
      *
      * @param brand The name of the brand to filter products by.
-     * @return A list of products that belong to the specified brand. If no products are found, an empty list is returned.
+     * @param page  The cursor, size and sort order of the page to retrieve.
+     * @return A page of product DTOs that belong to the specified brand. If no products are found, an empty page is returned.
      */
     @Override
-    public List<Product> getProductsByBrand(String brand) {
-        return productRepository.findByBrand(brand);
+    @Transactional(readOnly = true)
+    public ProductPageDto getProductsByBrand(String brand, ProductPageRequest page) {
+        return productCache.getPage(ProductQuery.of(null, brand, null, page),
+                query -> getConvertedPage(productRepository.findByBrand(brand, position(page), page.getSort().toSort(), Limit.of(page.getLimit())), page.getSort()));
     }
 
     /**
-     * Retrieves a list of products from the database that belong to a specific category and brand.
+     * Retrieves one page of the products, from the cache or else from the database, that belong to a specific category and brand.
      *
      * @param category The name of the category to filter products by. This parameter cannot be null or empty.
      * @param brand    The name of the brand to filter products by. This parameter cannot be null or empty.
-     * @return A list of products that belong to the specified category and brand.
-     * If no products are found, an empty list is returned.
+     * @param page     The cursor, size and sort order of the page to retrieve.
+     * @return A page of product DTOs that belong to the specified category and brand.
+     * If no products are found, an empty page is returned.
      */
     @Override
-    public List<Product> getProductsByCategoryAndBrand(String category, String brand) {
-        return productRepository.findByCategoryNameAndBrand(category, brand);
+    @Transactional(readOnly = true)
+    public ProductPageDto getProductsByCategoryAndBrand(String category, String brand, ProductPageRequest page) {
+        return productCache.getPage(ProductQuery.of(category, brand, null, page),
+                query -> getConvertedPage(productRepository.findByCategoryNameAndBrand(category, brand, position(page), page.getSort().toSort(), Limit.of(page.getLimit())), page.getSort()));
     }
 
     /**
-     * Retrieves a list of products from the database that match the specified name.
+     * Retrieves one page of the products, from the cache or else from the database, that match the specified name.
      *
      * @param name The name of the product to filter products by. This parameter cannot be null or empty.
-     * @return A list of products that match the specified name. If no products are found, an empty list is returned.
+     * @param page The cursor, size and sort order of the page to retrieve.
+     * @return A page of product DTOs that match the specified name. If no products are found, an empty page is returned.
      */
     @Override
-    public List<Product> getProductsByName(String name) {
-        return productRepository.findByName(name);
+    @Transactional(readOnly = true)
+    public ProductPageDto getProductsByName(String name, ProductPageRequest page) {
+        return productCache.getPage(ProductQuery.of(null, null, name, page),
+                query -> getConvertedPage(productRepository.findByName(name, position(page), page.getSort().toSort(), Limit.of(page.getLimit())), page.getSort()));
     }
 
     /**
-     * Retrieves a list of products from the database that match the specified brand and name.
+     * Retrieves one page of the products, from the cache or else from the database, that match the specified brand and name.
      *
      * @param brand The name of the brand to filter products by. This parameter cannot be null or empty.
      * @param name  The name of the product to filter products by. This parameter cannot be null or empty.
-     * @return A list of products that match the specified brand and name.
-     * If no products are found, an empty list is returned.
+     * @param page  The cursor, size and sort order of the page to retrieve.
+     * @return A page of product DTOs that match the specified brand and name.
+     * If no products are found, an empty page is returned.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPageDto getProductsByBrandAndName(String brand, String name, ProductPageRequest page) {
+        return productCache.getPage(ProductQuery.of(null, brand, name, page),
+                query -> getConvertedPage(productRepository.findByBrandAndName(brand, name, position(page), page.getSort().toSort(), Limit.of(page.getLimit())), page.getSort()));
+    }
+
+    /**
+     * Searches the products whose name, brand, category or description match a free-text query
+     * and whose facets match the selected values.
+     * Matching, filtering, facet counting and ranking run on the in-memory {@link ProductSearchIndex}; only the
+     * products of the requested page are read, from the cache or else with one batched query.
+     *
+     * @param query   The free-text query. A blank query matches every product.
+     * @param filters The selected values of each filtered facet.
+     * @param page  The zero-based number of the page to retrieve.
+     * @param size  The size of the page, capped to {@link ProductPageRequest#MAX_PAGE_SIZE}.
+     * @return A page of matching product DTOs, best match first, with the total number of hits and the facet counts.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductSearchDto searchProducts(String query, Map<ProductFacet, List<String>> filters, int page, int size) {
+        ProductSearchIndex.Result result = productSearchIndex.search(query, filters);
+        long[] hits = result.productIds();
+        int limit = Math.max(1, Math.min(size, ProductPageRequest.MAX_PAGE_SIZE));
+        int from = (int) Math.min((long) Math.max(page, 0) * limit, hits.length);
+        int to = Math.min(from + limit, hits.length);
+
+        List<Long> productIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            productIds.add(hits[i]);
+        }
+        Map<Long, ProductDto> productsById = productCache.getProducts(productIds, missingIds ->
+                getConvertedViews(productRepository.findByIdIn(missingIds)).stream()
+                        .collect(Collectors.toMap(ProductDto::getId, Function.identity())));
+
+        List<ProductDto> products = productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new ProductSearchDto(products, hits.length, page, limit, result.facets());
+    }
+
+    /**
+     * Passes every product, in ID order, to a sink as it is read from the database.
+     * Products are read as projections with a forward-only cursor and converted in chunks of {@value #IMAGE_BATCH_SIZE},
+     * with one image query per chunk. No entity is loaded into the persistence context, so memory use does not grow
+     * with the size of the catalog. The export bypasses the product cache.
+     *
+     * @param sink The consumer receiving the product DTOs.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportProducts(Consumer<ProductDto> sink) {
+        List<ProductView> chunk = new ArrayList<>(IMAGE_BATCH_SIZE);
+        try (Stream<ProductView> products = productRepository.streamAllByOrderById()) {
+            products.forEach(product -> {
+                chunk.add(product);
+                if (chunk.size() == IMAGE_BATCH_SIZE) {
+                    exportChunk(chunk, sink);
+                }
+            });
+        }
+        exportChunk(chunk, sink);
+    }
+
+    private void exportChunk(List<ProductView> chunk, Consumer<ProductDto> sink) {
+        getConvertedViews(chunk).forEach(sink);
+        chunk.clear();
+    }
+
+    /**
+     * Imports the products of a CSV or NDJSON upload, reading it row by row.
+     * Rows are processed in chunks of {@value #IMPORT_CHUNK_SIZE}: each chunk is checked for existing products with one
+     * query, its categories are resolved from the category dictionary, and its new products are inserted as JDBC
+     * batches in one transaction. Rows that cannot be read, are incomplete, or duplicate a product of the catalog or
+     * of an earlier row are reported and skipped. Only the current chunk is held in memory.
+     *
+     * @param input  The upload.
+     * @param format The format of the upload.
+     * @return The number of imported, duplicate and invalid rows, with the rows that were not imported.
+     * @throws IllegalArgumentException If the CSV header misses a required column.
+     */
+    @Override
+    public ProductImportResultDto importProducts(InputStream input, ProductImportFormat format) {
+        ProductImportResultDto result = new ProductImportResultDto();
+        try (ProductImportReader reader = new ProductImportReader(input, format, objectMapper)) {
+            List<ProductImportReader.Row> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+            while (reader.hasNext()) {
+                chunk.add(reader.next());
+                if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                    importChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+            importChunk(chunk, result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (result.getImported() > 0) {
+            // New products can show up on any listing page
+            productCache.invalidateAll();
+            catalogVersion.bumpCatalog();
+        }
+        return result;
+    }
+
+    private void importChunk(List<ProductImportReader.Row> rows, ProductImportResultDto result) {
+        List<ProductImportReader.Row> validRows = new ArrayList<>(rows.size());
+        List<ProductImportRowDto> rejected = new ArrayList<>();
+        for (ProductImportReader.Row row : rows) {
+            String error = row.error() != null ? row.error() : validateImport(row.request());
+            if (error != null) {
+                result.setInvalid(result.getInvalid() + 1);
+                rejected.add(rejectedRow(row, error));
+            } else {
+                validRows.add(row);
+            }
+        }
+        if (validRows.isEmpty()) {
+            result.getRejected().addAll(rejected);
+            return;
+        }
+
+        // One query for the whole chunk; it may return a few extra name and brand pairs, which are ignored
+        Set<String> takenKeys = productRepository.findByBrandInAndNameIn(
+                        validRows.stream().map(row -> row.request().getBrand()).collect(Collectors.toSet()),
+                        validRows.stream().map(row -> row.request().getName()).collect(Collectors.toSet()))
+                .stream()
+                .map(product -> importKey(product.getName(), product.getBrand()))
+                .collect(Collectors.toCollection(HashSet::new));
+
+        List<Product> products = new ArrayList<>(validRows.size());
+        for (ProductImportReader.Row row : validRows) {
+            AddProductRequest request = row.request();
+            if (!takenKeys.add(importKey(request.getName(), request.getBrand()))) {
+                result.setDuplicates(result.getDuplicates() + 1);
+                rejected.add(rejectedRow(row, "Product already exists"));
+            } else {
+                products.add(createProduct(request, resolveCategory(request.getCategory().getName())));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(products));
+        // The persistence context may outlive the transaction; detach the chunk so memory does not grow with the upload
+        entityManager.clear();
+        products.forEach(productSearchIndex::index);
+        result.setImported(result.getImported() + products.size());
+        rejected.sort(Comparator.comparingInt(ProductImportRowDto::getRow));
+        result.getRejected().addAll(rejected);
+    }
+
+    private static String validateImport(AddProductRequest request) {
+        if (request.getName() == null || request.getName().isBlank()
+                || request.getBrand() == null || request.getBrand().isBlank()) {
+            return "Name and brand are required";
+        }
+        if (request.getPrice() == null || request.getPrice().signum() < 0) {
+            return "Price must be zero or more";
+        }
+        if (request.getInventory() < 0) {
+            return "Inventory must be zero or more";
+        }
+        if (request.getCategory() == null || request.getCategory().getName() == null
+                || request.getCategory().getName().isBlank()) {
+            return "Category is required";
+        }
+        return null;
+    }
+
+    private static ProductImportRowDto rejectedRow(ProductImportReader.Row row, String reason) {
+        AddProductRequest request = row.request();
+        return new ProductImportRowDto(row.number(),
+                request != null ? request.getName() : null,
+                request != null ? request.getBrand() : null,
+                reason);
+    }
+
+    /**
+     * Products are unique by name and brand, compared ignoring case like the MySQL collation of the product table.
+     */
+    private static String importKey(String name, String brand) {
+        return name.toLowerCase(Locale.ROOT) + '\u0000' + brand.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Applies price and inventory changes to many products without loading them.
+     * The changes run as batches of {@value #BULK_UPDATE_BATCH_SIZE} parameterized UPDATE statements in one transaction,
+     * so either all of them apply or none does. The changed products are then evicted from the product cache,
+     * moved to their new price bucket in the search index, and get a new catalog version.
+     *
+     * @param requests The changes, applied in order. A field left null keeps its current value.
+     * @return The number of updated products and the IDs that matched no product.
+     * @throws IllegalArgumentException If a change has no product ID, changes nothing, or sets a negative value.
      */
     @Override
-    public List<Product> getProductsByBrandAndName(String brand, String name) {
-        return productRepository.findByBrandAndName(brand, name);
+    public BulkProductUpdateResultDto updateProductsInBulk(List<BulkProductUpdateRequest> requests) {
+        requests.forEach(ProductService::validateBulkUpdate);
+        int[][] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(BULK_UPDATE_SQL, requests,
+                BULK_UPDATE_BATCH_SIZE, (statement, request) -> {
+                    if (request.getPrice() != null) {
+                        statement.setBigDecimal(1, request.getPrice());
+                    } else {
+                        statement.setNull(1, Types.DECIMAL);
+                    }
+                    if (request.getInventory() != null) {
+                        statement.setInt(2, request.getInventory());
+                    } else {
+                        statement.setNull(2, Types.INTEGER);
+                    }
+                    statement.setLong(3, request.getId());
+                }));
+
+        BulkProductUpdateResultDto result = new BulkProductUpdateResultDto();
+        Set<Long> updatedIds = new HashSet<>();
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        int index = 0;
+        for (int[] batch : Objects.requireNonNull(counts)) {
+            for (int count : batch) {
+                BulkProductUpdateRequest request = requests.get(index++);
+                // Drivers that rewrite batches may not report per-statement counts
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    updatedIds.add(request.getId());
+                    if (request.getPrice() != null) {
+                        prices.put(request.getId(), request.getPrice());
+                    }
+                } else {
+                    result.getNotFound().add(request.getId());
+                }
+            }
+        }
+        result.setUpdated(updatedIds.size());
+
+        if (!updatedIds.isEmpty()) {
+            productCache.invalidateProducts(updatedIds);
+            // The statements bypassed Hibernate, so its second-level cache still holds the old rows
+            updatedIds.forEach(id -> entityManager.getEntityManagerFactory().getCache().evict(Product.class, id));
+            productSearchIndex.updatePrices(prices);
+            catalogVersion.bumpProducts(updatedIds);
+        }
+        return result;
+    }
+
+    private static void validateBulkUpdate(BulkProductUpdateRequest request) {
+        if (request.getId() == null) {
+            throw new IllegalArgumentException("Product ID is required");
+        }
+        if (request.getPrice() == null && request.getInventory() == null) {
+            throw new IllegalArgumentException("Nothing to update for product " + request.getId());
+        }
+        if (request.getPrice() != null && request.getPrice().signum() < 0
+                || request.getInventory() != null && request.getInventory() < 0) {
+            throw new IllegalArgumentException("Price and inventory must be zero or more for product " + request.getId());
+        }
+    }
+
+    /**
+     * Resolves the keyset position a page starts from.
+     *
+     * @param page The page request holding the continuation token.
+     * @return The position right after the last product of the previous page, or the initial position.
+     */
+    private ScrollPosition position(ProductPageRequest page) {
+        return ProductCursor.decode(page.getCursor(), page.getSort());
     }
 
     /**
@@ -214,45 +596,85 @@ public class ProductService implements IProductService {
      * If no products are found, the method returns 0.
      */
     @Override
+    @Transactional(readOnly = true)
     public Long countProductsByBrandAndName(String brand, String name) {
         return productRepository.countByBrandAndName(brand, name);
     }
 
     /**
-     * Converts a list of Product entities to a list of ProductDto objects, including associated images.
+     * Converts a list of product projections to a list of ProductDto objects, including associated images,
+     * loaded as projections as well. The images of all products are fetched with one {@code IN} query per chunk of
+     * {@link #IMAGE_BATCH_SIZE} product IDs instead of one query per product.
      *
-     * @param products The list of Product entities to be converted.
-     * @return A list of converted ProductDto objects. Each ProductDto object contains the details of a Product entity,
-     * including associated images.
+     * @param products The product projections to be converted.
+     * @return A list of converted ProductDto objects, in the order of the projections.
      */
-    @Override
-    public List<ProductDto> getConvertedProducts(List<Product> products) {
-        return products.stream().map(this::convertToDto).toList();
+    private List<ProductDto> getConvertedViews(List<ProductView> products) {
+        Map<Long, List<ImageDto>> imagesByProduct = getImagesByProductId(products.stream().map(ProductView::getId).toList());
+        return products.stream()
+                .map(product -> dtoMapper.toProductDto(product, imagesByProduct.getOrDefault(product.getId(), List.of())))
+                .toList();
+    }
+
+    /**
+     * Loads the image metadata of the given products in chunks and groups it by product ID.
+     *
+     * @param productIds The IDs of the products whose images are loaded.
+     * @return The ImageDto objects of each product, keyed by product ID.
+     */
+    private Map<Long, List<ImageDto>> getImagesByProductId(List<Long> productIds) {
+        List<Long> distinctIds = productIds.stream().distinct().toList();
+        Map<Long, List<ImageDto>> imagesByProduct = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += IMAGE_BATCH_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + IMAGE_BATCH_SIZE, distinctIds.size()));
+            for (ImageView image : imageRepository.findByProductIdIn(chunk)) {
+                imagesByProduct.computeIfAbsent(image.getProductId(), id -> new ArrayList<>())
+                        .add(dtoMapper.toImageDto(image));
+            }
+        }
+        return imagesByProduct;
+    }
+
+    /**
+     * Converts a window of product projections to a page of ProductDto objects with the token of the next page.
+     *
+     * @param products The window of product projections to be converted.
+     * @param sort     The sort order the window was read with.
+     * @return The converted page. Its next cursor is null when there are no more products.
+     */
+    private ProductPageDto getConvertedPage(Window<ProductView> products, ProductSort sort) {
+        List<ProductDto> convertedProducts = getConvertedViews(products.getContent());
+        String nextCursor = products.hasNext() && !products.isEmpty()
+                ? ProductCursor.encode(sort, products.getContent().get(products.size() - 1))
+                : null;
+        return new ProductPageDto(convertedProducts, nextCursor);
     }
 
     /**
      * Converts a Product entity to a ProductDto object, including associated images.
+     * The images are loaded as projections of their metadata, without loading Image entities.
      *
      * @param product The Product entity to be converted.
      * @return The converted ProductDto object.
      */
     @Override
     public ProductDto convertToDto(Product product) {
-        // Use ModelMapper to map the Product entity to a ProductDto object
-        ProductDto productDto = modelMapper.map(product, ProductDto.class);
-
-        // Retrieve associated images from the database using the product's ID
-        List<Image> images = imageRepository.findByProductId(product.getId());
-
-        // Convert each Image entity to an ImageDto object and store them in a list
-        List<ImageDto> imageDtos = images.stream()
-                .map(image -> modelMapper.map(image, ImageDto.class))
+        // Retrieve the metadata of the associated images using the product's ID
+        List<ImageDto> images = imageRepository.findByProductId(product.getId()).stream()
+                .map(dtoMapper::toImageDto)
                 .toList();
 
-        // Set the list of ImageDto objects in the ProductDto object
-        productDto.setImages(imageDtos);
+        // Map the product together with its images
+        return dtoMapper.toProductDto(product, images);
+    }
 
-        // Return the converted ProductDto object
-        return productDto;
+    /**
+     * Retrieves the hit, miss and eviction counters of the product caches.
+     *
+     * @return The counters of each product cache.
+     */
+    @Override
+    public List<CacheStatsDto> getCacheStats() {
+        return productCache.getStats();
     }
 }
@@ -0,0 +1,130 @@
+package com.rvega.dreamshops.service.search;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to non-negative int values, without boxing.
+ * Keys and values are held in two parallel arrays with linear probing; removals shift the following entries back,
+ * so no tombstones accumulate. Not thread-safe.
+ *
+ * @author rvega
+ */
+final class LongIntHashMap {
+    /**
+     * The value returned for missing keys, and the marker of empty slots.
+     */
+    static final int NO_VALUE = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashMap() {
+        allocate(16);
+    }
+
+    /**
+     * @param key The key to look up.
+     * @return The value of the key, or {@link #NO_VALUE} if it is missing.
+     */
+    int get(long key) {
+        for (int slot = slot(key); values[slot] != NO_VALUE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Maps a key to a value, replacing its previous value.
+     *
+     * @param key   The key.
+     * @param value The value, not negative.
+     */
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // Kept at most half full, so probe sequences stay short
+        if (++size * 2 > values.length) {
+            resize(values.length * 2);
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key to remove.
+     * @return The value the key had, or {@link #NO_VALUE} if it was missing.
+     */
+    int remove(long key) {
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        if (removed == NO_VALUE) {
+            return NO_VALUE;
+        }
+        // Move back the entries of the probe sequence that would no longer be reachable past the gap
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != NO_VALUE; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = NO_VALUE;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes every key and releases the arrays grown for them.
+     */
+    void clear() {
+        allocate(16);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (oldValues[slot] != NO_VALUE) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+        size = 0;
+    }
+}
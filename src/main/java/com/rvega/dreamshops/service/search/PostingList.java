@@ -0,0 +1,93 @@
+package com.rvega.dreamshops.service.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted set of document numbers held in a growable int array.
+ * It takes four bytes per document however sparse the documents are, where a bitset takes one bit per document
+ * number up to the highest one it holds: most terms of a catalog are rare, and their documents far apart.
+ * Documents are mostly added in ascending order, which appends. Not thread-safe.
+ *
+ * @author rvega
+ */
+final class PostingList {
+    private int[] docs = new int[1];
+    private int size;
+
+    /**
+     * @param doc The document to add. Adding a document already there does nothing.
+     */
+    void add(int doc) {
+        int at = size;
+        if (size > 0 && docs[size - 1] >= doc) {
+            at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+        }
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+        }
+        System.arraycopy(docs, at, docs, at + 1, size - at);
+        docs[at] = doc;
+        size++;
+    }
+
+    /**
+     * @param doc The document to remove. Removing a missing document does nothing.
+     */
+    void remove(int doc) {
+        int at = Arrays.binarySearch(docs, 0, size, doc);
+        if (at < 0) {
+            return;
+        }
+        System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+        size--;
+        // Give back the room of a list that shrank to a quarter, keeping as much again for growth
+        if (size < docs.length / 4) {
+            docs = Arrays.copyOf(docs, Math.max(1, size * 2));
+        }
+    }
+
+    boolean contains(int doc) {
+        return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Sets the bits of the documents of this list.
+     *
+     * @param bits The bitset to add the documents to.
+     */
+    void addTo(BitSet bits) {
+        for (int i = 0; i < size; i++) {
+            bits.set(docs[i]);
+        }
+    }
+
+    /**
+     * @param bits A set of documents.
+     * @return The number of documents of this list that are also in the given set.
+     */
+    int countIn(BitSet bits) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (bits.get(docs[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The size of the document array in bytes, room for growth included.
+     */
+    long sizeInBytes() {
+        return (long) docs.length * Integer.BYTES;
+    }
+}
@@ -0,0 +1,571 @@
+package com.rvega.dreamshops.service.search;
+
+import com.rvega.dreamshops.config.ReadWriteRoutingDataSource;
+import com.rvega.dreamshops.enums.ProductFacet;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.model.Product;
+import com.rvega.dreamshops.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the product name, brand, category name and description.
+ * <p>
+ * Every indexed product gets a dense document number, and each field maps its tokens to a {@link PostingList}
+ * of the documents containing them. A query token matches the terms it is a prefix of, up to
+ * {@value #MAX_PREFIX_TERMS} terms, and a single-character token only matches itself; every token must match
+ * at least one field, and hits are ranked by the weight of the fields they matched in, exact terms counting double.
+ * <p>
+ * The same document numbers index the {@link ProductFacet facets}: one posting list per brand, category and price
+ * bucket. Filters and facet counts are computed on bitsets of the query's candidates, without touching the database.
+ * The index is built from the database at startup and kept up to date by the product and category services.
+ * Deleted products leave empty document numbers behind; once they outnumber the live ones, the documents are
+ * renumbered densely, in the same order, from the tokens kept in memory.
+ *
+ * @author rvega
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    /**
+     * The length from which a query token also matches the longer terms it is a prefix of.
+     */
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    /**
+     * The most terms a prefix expands to, the first ones in alphabetical order.
+     */
+    private static final int MAX_PREFIX_TERMS = 256;
+
+    /**
+     * Lower bounds of the price buckets, in ascending order.
+     */
+    private static final int[] PRICE_BUCKET_BOUNDS = {0, 25, 50, 100, 250, 500, 1000};
+
+    /**
+     * Orders price bucket labels by their lower bound.
+     */
+    private static final Comparator<String> PRICE_BUCKET_ORDER =
+            Comparator.comparingInt(label -> Integer.parseInt(label.split("[-+]")[0]));
+
+    /**
+     * The matching products of a query, ranked, and the facet counts of the matches.
+     *
+     * @param productIds The IDs of the matching products, best match first.
+     * @param facets     For each facet, the number of matches per value. The count of a facet ignores the filter on
+     *                   that same facet, so it tells how many products selecting each value would add.
+     */
+    public record Result(long[] productIds, Map<ProductFacet, Map<String, Integer>> facets) {
+    }
+
+    /**
+     * The indexed fields, with the weight of a match in each of them.
+     */
+    enum Field {
+        NAME(4), BRAND(3), CATEGORY(2), DESCRIPTION(1);
+
+        final int weight;
+
+        Field(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Field, TreeMap<String, PostingList>> postings = new EnumMap<>(Field.class);
+    private final Map<ProductFacet, Map<String, PostingList>> facets = new EnumMap<>(ProductFacet.class);
+    private final LongIntHashMap docByProductId = new LongIntHashMap();
+    private final BitSet liveDocs = new BitSet();
+    private long[] productIdByDoc = new long[1024];
+    private long[] categoryIdByDoc = new long[1024];
+    private String[][][] tokensByDoc = new String[1024][][];
+    private String[][] facetValuesByDoc = new String[1024][];
+    private int maxDoc;
+
+    /**
+     * Rebuilds the whole index from the products in the primary database, reading them in batches.
+     * A lagging read replica would leave out the latest writes until each product is written again.
+     */
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            facets.clear();
+            docByProductId.clear();
+            liveDocs.clear();
+            truncate(0);
+            Window<Product> batch = loadBatch(ScrollPosition.keyset());
+            while (!batch.isEmpty()) {
+                batch.forEach(this::doIndex);
+                if (!batch.hasNext()) {
+                    break;
+                }
+                batch = loadBatch(batch.positionAt(batch.size() - 1));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Window<Product> loadBatch(ScrollPosition position) {
+        return ReadWriteRoutingDataSource.readFromPrimary(
+                () -> productRepository.findAllBy(position, Sort.by("id"), Limit.of(LOAD_BATCH_SIZE)));
+    }
+
+    /**
+     * Adds a product to the index, or re-indexes it if it is already there.
+     *
+     * @param product The added or updated product.
+     */
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            doIndex(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param productId The ID of the deleted product.
+     */
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            int doc = docByProductId.remove(productId);
+            if (doc != LongIntHashMap.NO_VALUE) {
+                unpost(doc);
+                unpostFacets(doc);
+                liveDocs.clear(doc);
+                tokensByDoc[doc] = null;
+                facetValuesByDoc[doc] = null;
+                if (maxDoc - docByProductId.size() > docByProductId.size()) {
+                    compact();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-indexes the category name of every product of a renamed category.
+     *
+     * @param category The renamed category.
+     */
+    public void updateCategory(Category category) {
+        if (category.getId() == null) {
+            // A category without an ID has no products yet
+            return;
+        }
+        long categoryId = category.getId();
+        lock.writeLock().lock();
+        try {
+            String[] tokens = tokenize(category.getName());
+            for (int doc = liveDocs.nextSetBit(0); doc >= 0; doc = liveDocs.nextSetBit(doc + 1)) {
+                if (categoryIdByDoc[doc] == categoryId) {
+                    unpost(doc, Field.CATEGORY);
+                    tokensByDoc[doc][Field.CATEGORY.ordinal()] = tokens;
+                    post(doc, Field.CATEGORY);
+                    unpostFacets(doc);
+                    facetValuesByDoc[doc][ProductFacet.CATEGORY.ordinal()] = category.getName();
+                    postFacets(doc);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves products to the price facet bucket of their new price. Prices are not searchable text,
+     * so nothing else is re-indexed.
+     *
+     * @param prices The new prices, keyed by product ID. Products missing from the index are ignored.
+     */
+    public void updatePrices(Map<Long, BigDecimal> prices) {
+        lock.writeLock().lock();
+        try {
+            prices.forEach((productId, price) -> {
+                int doc = docByProductId.get(productId);
+                if (doc != LongIntHashMap.NO_VALUE) {
+                    unpostFacets(doc);
+                    facetValuesByDoc[doc][ProductFacet.PRICE.ordinal()] = priceBucket(price);
+                    postFacets(doc);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the index and ranks the matching products.
+     *
+     * @param query The free-text query.
+     * @return The IDs of the matching products, best match first. Empty if the query has no tokens.
+     */
+    public long[] search(String query) {
+        if (tokenize(query).length == 0) {
+            return new long[0];
+        }
+        return search(query, Map.of()).productIds();
+    }
+
+    /**
+     * Searches the index, applies facet filters, ranks the matching products and counts them per facet value.
+     * Values selected within one facet are alternatives; filters on different facets must all match.
+     *
+     * @param query   The free-text query. When it has no tokens, every product matches and products keep their ID order.
+     * @param filters The selected values of each filtered facet.
+     * @return The ranked matches and their facet counts.
+     */
+    public Result search(String query, Map<ProductFacet, ? extends Collection<String>> filters) {
+        String[] queryTokens = tokenize(query);
+        lock.readLock().lock();
+        try {
+            int fieldCount = Field.values().length;
+            PostingList[][] exact = new PostingList[queryTokens.length][fieldCount];
+            BitSet[][] prefix = new BitSet[queryTokens.length][fieldCount];
+            BitSet candidates = (BitSet) liveDocs.clone();
+            for (int t = 0; t < queryTokens.length; t++) {
+                BitSet tokenDocs = new BitSet();
+                for (Field field : Field.values()) {
+                    TreeMap<String, PostingList> terms = postings.getOrDefault(field, new TreeMap<>());
+                    exact[t][field.ordinal()] = terms.get(queryTokens[t]);
+                    BitSet prefixDocs = new BitSet();
+                    for (PostingList docs : expand(terms, queryTokens[t])) {
+                        docs.addTo(prefixDocs);
+                    }
+                    prefix[t][field.ordinal()] = prefixDocs;
+                    tokenDocs.or(prefixDocs);
+                }
+                candidates.and(tokenDocs);
+            }
+
+            Map<ProductFacet, BitSet> facetFilters = new EnumMap<>(ProductFacet.class);
+            filters.forEach((facet, values) -> {
+                if (values != null && !values.isEmpty()) {
+                    BitSet selected = new BitSet();
+                    Map<String, PostingList> valueDocs = facets.getOrDefault(facet, Map.of());
+                    for (String value : values) {
+                        PostingList docs = valueDocs.get(value);
+                        if (docs != null) {
+                            docs.addTo(selected);
+                        }
+                    }
+                    facetFilters.put(facet, selected);
+                }
+            });
+
+            Map<ProductFacet, Map<String, Integer>> facetCounts = countFacets(candidates, facetFilters);
+            BitSet matches = candidates;
+            facetFilters.values().forEach(matches::and);
+
+            // Pack (inverted score, document) into one long so a primitive sort ranks the hits
+            long[] hits = new long[matches.cardinality()];
+            int hitCount = 0;
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                int score = 0;
+                for (int t = 0; t < queryTokens.length; t++) {
+                    for (Field field : Field.values()) {
+                        PostingList exactDocs = exact[t][field.ordinal()];
+                        if (exactDocs != null && exactDocs.contains(doc)) {
+                            score += 2 * field.weight;
+                        } else if (prefix[t][field.ordinal()].get(doc)) {
+                            score += field.weight;
+                        }
+                    }
+                }
+                hits[hitCount++] = ((long) (Integer.MAX_VALUE - score) << 32) | doc;
+            }
+            Arrays.sort(hits, 0, hitCount);
+
+            long[] productIds = new long[hitCount];
+            for (int i = 0; i < hitCount; i++) {
+                productIds[i] = productIdByDoc[(int) hits[i]];
+            }
+            return new Result(productIds, facetCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the postings of the terms a query token matches: the token itself if it is shorter than
+     * {@value #MIN_PREFIX_LENGTH}, else the first {@value #MAX_PREFIX_TERMS} terms it is a prefix of.
+     */
+    private static Collection<PostingList> expand(TreeMap<String, PostingList> terms, String token) {
+        if (token.length() < MIN_PREFIX_LENGTH) {
+            PostingList docs = terms.get(token);
+            return docs != null ? List.of(docs) : List.of();
+        }
+        return terms.subMap(token, token + Character.MAX_VALUE).values().stream().limit(MAX_PREFIX_TERMS).toList();
+    }
+
+    /**
+     * Counts the candidates per facet value, each facet under the filters of all the other facets.
+     */
+    private Map<ProductFacet, Map<String, Integer>> countFacets(BitSet candidates, Map<ProductFacet, BitSet> facetFilters) {
+        Map<ProductFacet, Map<String, Integer>> counts = new EnumMap<>(ProductFacet.class);
+        for (ProductFacet facet : ProductFacet.values()) {
+            BitSet base = (BitSet) candidates.clone();
+            facetFilters.forEach((other, selected) -> {
+                if (other != facet) {
+                    base.and(selected);
+                }
+            });
+            Map<String, Integer> valueCounts = new LinkedHashMap<>();
+            for (Map.Entry<String, PostingList> value : facets.getOrDefault(facet, Map.of()).entrySet()) {
+                int count = value.getValue().countIn(base);
+                if (count > 0) {
+                    valueCounts.put(value.getKey(), count);
+                }
+            }
+            counts.put(facet, valueCounts);
+        }
+        return counts;
+    }
+
+    private void doIndex(Product product) {
+        int existing = docByProductId.get(product.getId());
+        int doc;
+        if (existing != LongIntHashMap.NO_VALUE) {
+            doc = existing;
+            unpost(doc);
+            unpostFacets(doc);
+        } else {
+            doc = maxDoc++;
+            ensureCapacity(doc);
+            docByProductId.put(product.getId(), doc);
+        }
+        Category category = product.getCategory();
+        productIdByDoc[doc] = product.getId();
+        categoryIdByDoc[doc] = category != null && category.getId() != null ? category.getId() : -1;
+
+        String[][] tokens = new String[Field.values().length][];
+        tokens[Field.NAME.ordinal()] = tokenize(product.getName());
+        tokens[Field.BRAND.ordinal()] = tokenize(product.getBrand());
+        tokens[Field.CATEGORY.ordinal()] = tokenize(category != null ? category.getName() : null);
+        tokens[Field.DESCRIPTION.ordinal()] = tokenize(product.getDescription());
+        tokensByDoc[doc] = tokens;
+        for (Field field : Field.values()) {
+            post(doc, field);
+        }
+
+        String[] facetValues = new String[ProductFacet.values().length];
+        facetValues[ProductFacet.BRAND.ordinal()] = product.getBrand();
+        facetValues[ProductFacet.CATEGORY.ordinal()] = category != null ? category.getName() : null;
+        facetValues[ProductFacet.PRICE.ordinal()] = priceBucket(product.getPrice());
+        facetValuesByDoc[doc] = facetValues;
+        postFacets(doc);
+        liveDocs.set(doc);
+    }
+
+    private void postFacets(int doc) {
+        for (ProductFacet facet : ProductFacet.values()) {
+            String value = facetValuesByDoc[doc][facet.ordinal()];
+            if (value != null) {
+                // Price buckets keep their natural order, other facet values are listed alphabetically
+                facets.computeIfAbsent(facet, f -> f == ProductFacet.PRICE ? new TreeMap<>(PRICE_BUCKET_ORDER) : new TreeMap<>())
+                        .computeIfAbsent(value, v -> new PostingList())
+                        .add(doc);
+            }
+        }
+    }
+
+    private void unpostFacets(int doc) {
+        for (ProductFacet facet : ProductFacet.values()) {
+            String value = facetValuesByDoc[doc][facet.ordinal()];
+            Map<String, PostingList> values = facets.get(facet);
+            if (value != null && values != null) {
+                PostingList docs = values.get(value);
+                if (docs != null) {
+                    docs.remove(doc);
+                    if (docs.isEmpty()) {
+                        values.remove(value);
+                    }
+                }
+            }
+        }
+    }
+
+    private void post(int doc, Field field) {
+        TreeMap<String, PostingList> terms = postings.computeIfAbsent(field, f -> new TreeMap<>());
+        for (String token : tokensByDoc[doc][field.ordinal()]) {
+            terms.computeIfAbsent(token, t -> new PostingList()).add(doc);
+        }
+    }
+
+    private void unpost(int doc) {
+        for (Field field : Field.values()) {
+            unpost(doc, field);
+        }
+    }
+
+    private void unpost(int doc, Field field) {
+        TreeMap<String, PostingList> terms = postings.get(field);
+        if (terms == null) {
+            return;
+        }
+        for (String token : tokensByDoc[doc][field.ordinal()]) {
+            PostingList docs = terms.get(token);
+            if (docs != null) {
+                docs.remove(doc);
+                if (docs.isEmpty()) {
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Renumbers the live documents from zero, keeping their order, and rebuilds the postings and facets of the new
+     * numbers from the tokens and facet values of the documents.
+     */
+    private void compact() {
+        postings.clear();
+        facets.clear();
+        int live = 0;
+        for (int doc = liveDocs.nextSetBit(0); doc >= 0; doc = liveDocs.nextSetBit(doc + 1), live++) {
+            productIdByDoc[live] = productIdByDoc[doc];
+            categoryIdByDoc[live] = categoryIdByDoc[doc];
+            tokensByDoc[live] = tokensByDoc[doc];
+            facetValuesByDoc[live] = facetValuesByDoc[doc];
+            docByProductId.put(productIdByDoc[live], live);
+        }
+        truncate(live);
+        liveDocs.clear();
+        liveDocs.set(0, live);
+        // Give back the room of the deleted documents, keeping as much again for growth
+        int capacity = Math.max(1024, Integer.highestOneBit(Math.max(live, 1)) * 2);
+        if (capacity < productIdByDoc.length) {
+            resize(capacity);
+        }
+        for (int doc = 0; doc < live; doc++) {
+            for (Field field : Field.values()) {
+                post(doc, field);
+            }
+            postFacets(doc);
+        }
+    }
+
+    /**
+     * Drops the documents numbered from the given number on, which must all be deleted or moved.
+     */
+    private void truncate(int newMaxDoc) {
+        Arrays.fill(tokensByDoc, newMaxDoc, maxDoc, null);
+        Arrays.fill(facetValuesByDoc, newMaxDoc, maxDoc, null);
+        maxDoc = newMaxDoc;
+    }
+
+    /**
+     * @return The number of document numbers in use, those of deleted products included.
+     */
+    int documentCount() {
+        lock.readLock().lock();
+        try {
+            return maxDoc;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The size in bytes of the document arrays of all postings and facet values.
+     */
+    long postingBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Map<String, PostingList> terms : postings.values()) {
+                bytes += terms.values().stream().mapToLong(PostingList::sizeInBytes).sum();
+            }
+            for (Map<String, PostingList> values : facets.values()) {
+                bytes += values.values().stream().mapToLong(PostingList::sizeInBytes).sum();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int doc) {
+        if (doc >= productIdByDoc.length) {
+            resize(productIdByDoc.length * 2);
+        }
+    }
+
+    private void resize(int capacity) {
+        productIdByDoc = Arrays.copyOf(productIdByDoc, capacity);
+        categoryIdByDoc = Arrays.copyOf(categoryIdByDoc, capacity);
+        tokensByDoc = Arrays.copyOf(tokensByDoc, capacity);
+        facetValuesByDoc = Arrays.copyOf(facetValuesByDoc, capacity);
+    }
+
+    /**
+     * Returns the label of the price bucket a price falls in, such as "25-50" or "1000+".
+     *
+     * @param price The price, possibly null.
+     * @return The bucket label, or null if the price is null.
+     */
+    static String priceBucket(BigDecimal price) {
+        if (price == null) {
+            return null;
+        }
+        int bucket = 0;
+        while (bucket + 1 < PRICE_BUCKET_BOUNDS.length && price.compareTo(BigDecimal.valueOf(PRICE_BUCKET_BOUNDS[bucket + 1])) >= 0) {
+            bucket++;
+        }
+        return bucket + 1 < PRICE_BUCKET_BOUNDS.length
+                ? PRICE_BUCKET_BOUNDS[bucket] + "-" + PRICE_BUCKET_BOUNDS[bucket + 1]
+                : PRICE_BUCKET_BOUNDS[bucket] + "+";
+    }
+
+    /**
+     * Splits a text into distinct lower-case tokens of letters and digits.
+     *
+     * @param text The text to split, possibly null.
+     * @return The distinct tokens, in order of appearance.
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(String[]::new);
+    }
+}
@@ -3,12 +3,12 @@ package com.rvega.dreamshops.service.user;
 import com.rvega.dreamshops.dto.UserDto;
 import com.rvega.dreamshops.exceptions.AlreadyExistsException;
 import com.rvega.dreamshops.exceptions.ResourceNotFoundException;
+import com.rvega.dreamshops.mapper.DtoMapper;
 import com.rvega.dreamshops.model.User;
 import com.rvega.dreamshops.repository.UserRepository;
 import com.rvega.dreamshops.request.CreateUserRequest;
 import com.rvega.dreamshops.request.UserUpdateRequest;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,8 +23,8 @@ public class UserService implements IUserService {
     // Injected UserRepository for database operations on User entity.
     private final UserRepository userRepository;
 
-    // Injected ModelMapper for converting User entities to UserDto objects.
-    private final ModelMapper modelMapper;
+    // Injected DtoMapper for converting User entities to UserDto objects.
+    private final DtoMapper dtoMapper;
     private final PasswordEncoder passwordEncoder;
 
     /**
@@ -105,8 +105,8 @@ public class UserService implements IUserService {
      */
     @Override
     public UserDto convertUserToDto(User user) {
-        // Uses ModelMapper to convert the User entity to a UserDto
-        return modelMapper.map(user, UserDto.class);
+        // Uses DtoMapper to convert the User entity to a UserDto
+        return dtoMapper.toUserDto(user);
     }
 
     /**
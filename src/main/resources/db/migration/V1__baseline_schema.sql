@@ -0,0 +1,98 @@
+-- Baseline schema, as created by Hibernate from the entity classes before migrations were introduced.
+-- Databases created that way are baselined at this version and start with V2.
+
+create table category (
+    id bigint not null auto_increment,
+    name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table product (
+    id bigint not null auto_increment,
+    name varchar(255),
+    brand varchar(255),
+    price decimal(38,2),
+    inventory integer not null,
+    description varchar(255),
+    category_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table image (
+    id bigint not null auto_increment,
+    file_name varchar(255),
+    file_type varchar(255),
+    image mediumblob,
+    download_url varchar(255),
+    product_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table role (
+    id bigint not null auto_increment,
+    name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table user (
+    id bigint not null auto_increment,
+    first_name varchar(255),
+    last_name varchar(255),
+    email varchar(255),
+    password varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table user_roles (
+    user_id bigint not null,
+    role_id bigint not null
+) engine=InnoDB;
+
+create table cart (
+    id bigint not null auto_increment,
+    total_amount decimal(38,2),
+    user_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table cart_item (
+    id bigint not null auto_increment,
+    quantity integer not null,
+    unit_price decimal(38,2),
+    total_price decimal(38,2),
+    product_id bigint,
+    cart_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table orders (
+    order_id bigint not null auto_increment,
+    order_date date,
+    total_amount decimal(38,2),
+    order_status enum ('CANCELLED','DELIVERED','PENDING','PROCESSING','SHIPPED'),
+    user_id bigint,
+    primary key (order_id)
+) engine=InnoDB;
+
+create table order_item (
+    id bigint not null auto_increment,
+    quantity integer not null,
+    price decimal(38,2),
+    order_id bigint,
+    product_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+alter table user add constraint uk_user_email unique (email);
+alter table cart add constraint uk_cart_user unique (user_id);
+
+alter table product add constraint fk_product_category foreign key (category_id) references category (id);
+alter table image add constraint fk_image_product foreign key (product_id) references product (id);
+alter table user_roles add constraint fk_user_roles_user foreign key (user_id) references user (id);
+alter table user_roles add constraint fk_user_roles_role foreign key (role_id) references role (id);
+alter table cart add constraint fk_cart_user foreign key (user_id) references user (id);
+alter table cart_item add constraint fk_cart_item_product foreign key (product_id) references product (id);
+alter table cart_item add constraint fk_cart_item_cart foreign key (cart_id) references cart (id);
+alter table orders add constraint fk_orders_user foreign key (user_id) references user (id);
+alter table order_item add constraint fk_order_item_order foreign key (order_id) references orders (order_id);
+alter table order_item add constraint fk_order_item_product foreign key (product_id) references product (id);
@@ -0,0 +1,28 @@
+-- Indexes for the derived queries of the repositories.
+-- InnoDB appends the primary key to every secondary index, so rows matching an equality prefix come back in id order
+-- and the keyset listings read them without a sort. An index starting with a foreign key column replaces the index
+-- MySQL implicitly created for that foreign key. user(email) and cart(user_id) are already covered by their unique keys.
+
+-- ProductRepository: findByBrand, findByBrandAndName, countByBrandAndName, existsByNameAndBrand
+create index idx_product_brand_name on product (brand, name);
+
+-- ProductRepository: findByName
+create index idx_product_name on product (name);
+
+-- ProductRepository: findByCategoryName, findByCategoryNameAndBrand
+create index idx_product_category_brand on product (category_id, brand);
+
+-- ProductRepository: listings sorted by price, whose keyset is (price, id)
+create index idx_product_price_id on product (price, id);
+
+-- CategoryRepository: findByName, existsByName, and the category join of findByCategoryName
+create unique index uk_category_name on category (name);
+
+-- ImageRepository: findByProductId, findByProductIdIn
+create index idx_image_product on image (product_id);
+
+-- OrderRepository: findByUserId
+create index idx_orders_user on orders (user_id);
+
+-- CartItemRepository: deleteAllByCartId
+create index idx_cart_item_cart on cart_item (cart_id);
@@ -0,0 +1,16 @@
+-- Table-backed pooled ID generation. Each row holds the upper bound of the last block of 50 IDs handed out for an
+-- entity, so Hibernate assigns IDs without an insert round trip and can send inserts as JDBC batches.
+-- Existing rows keep their IDs; the first block of each entity starts right after its highest ID.
+
+create table id_generator (
+    sequence_name varchar(255) not null,
+    next_val bigint,
+    primary key (sequence_name)
+) engine=InnoDB;
+
+insert into id_generator (sequence_name, next_val) select 'product', coalesce(max(id), 0) + 50 from product;
+insert into id_generator (sequence_name, next_val) select 'image', coalesce(max(id), 0) + 50 from image;
+insert into id_generator (sequence_name, next_val) select 'user', coalesce(max(id), 0) + 50 from user;
+insert into id_generator (sequence_name, next_val) select 'cart_item', coalesce(max(id), 0) + 50 from cart_item;
+insert into id_generator (sequence_name, next_val) select 'orders', coalesce(max(order_id), 0) + 50 from orders;
+insert into id_generator (sequence_name, next_val) select 'order_item', coalesce(max(id), 0) + 50 from order_item;
@@ -0,0 +1,9 @@
+-- Image files move out of the image.image blob column into the content-addressed image store on disk.
+-- Rows keep the SHA-256 hash that names their file, and its size. Existing blobs are copied to the store by the
+-- ImageBlobMigrator, which clears each blob once its file is written; the column is dropped once no blob is left.
+
+alter table image add column content_hash varchar(64);
+alter table image add column file_size bigint;
+
+-- Finds the images sharing a file; V6 counts them by hash to fill image_content, which tracks the sharing since
+create index idx_image_content_hash on image (content_hash);
@@ -0,0 +1,4 @@
+-- The time, in UTC, at which the file of each image was last uploaded, sent as the Last-Modified header of downloads.
+-- Images stored before this version get it when their blob is migrated; until then they are validated by ETag only.
+
+alter table image add column last_modified datetime(6);
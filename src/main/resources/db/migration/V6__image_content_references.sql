@@ -0,0 +1,13 @@
+-- One row per stored image file, counting the images that refer to it. Images uploaded with the same content share
+-- the file, which is deleted when the count drops to zero. Rows are locked while a count changes, so that a file is
+-- never deleted while an upload of the same content is being saved.
+
+create table image_content (
+    content_hash varchar(64) not null,
+    file_size bigint,
+    ref_count integer not null,
+    primary key (content_hash)
+) engine=InnoDB;
+
+insert into image_content (content_hash, file_size, ref_count)
+select content_hash, max(file_size), count(*) from image where content_hash is not null group by content_hash;
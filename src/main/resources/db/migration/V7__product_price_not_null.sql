@@ -0,0 +1,6 @@
+-- Every product has a price. The listings sorted by price page on the keyset (price, id), which has no position
+-- for a null price, so products without one could neither be placed on a page nor resumed after.
+-- Products saved without a price before this version are given a price of zero.
+
+update product set price = 0 where price is null;
+alter table product modify price decimal(38,2) not null;
@@ -0,0 +1,4 @@
+-- The download URL of an image is derived from its ID when the image is mapped, so it is no longer stored.
+-- Storing it took an update of each new row, since the ID is only known once the row is persisted.
+
+alter table image drop column download_url;
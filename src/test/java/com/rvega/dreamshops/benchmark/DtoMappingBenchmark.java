@@ -0,0 +1,160 @@
+package com.rvega.dreamshops.benchmark;
+
+import com.rvega.dreamshops.dto.ImageDto;
+import com.rvega.dreamshops.dto.OrderDto;
+import com.rvega.dreamshops.dto.ProductDto;
+import com.rvega.dreamshops.dto.UserDto;
+import com.rvega.dreamshops.enums.OrderStatus;
+import com.rvega.dreamshops.mapper.DtoMapper;
+import com.rvega.dreamshops.model.Cart;
+import com.rvega.dreamshops.model.CartItem;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.model.Image;
+import com.rvega.dreamshops.model.Order;
+import com.rvega.dreamshops.model.OrderItem;
+import com.rvega.dreamshops.model.Product;
+import com.rvega.dreamshops.model.User;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written {@link DtoMapper} with the reflective ModelMapper it replaced,
+ * on a 100-product catalog page, an order and a user with a cart.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=com.rvega.dreamshops.benchmark.DtoMappingBenchmark -Dexec.classpathScope=test}.
+ * Add {@code -prof gc} to the options to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+    private final DtoMapper dtoMapper = new DtoMapper();
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    private List<Product> products;
+    private Order order;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        Category category = new Category("phones");
+        category.setId(1L);
+
+        products = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            Product product = new Product("phone " + i, "acme", BigDecimal.valueOf(100 + i), 10, "A phone", category);
+            product.setId(i);
+            List<Image> images = new ArrayList<>();
+            for (long j = 0; j < 2; j++) {
+                Image image = new Image();
+                image.setId(i * 2 + j);
+                image.setFileName("phone-" + i + "-" + j + ".png");
+                image.setProduct(product);
+                images.add(image);
+            }
+            product.setImages(images);
+            products.add(product);
+        }
+
+        user = new User();
+        user.setId(1L);
+        user.setFirstName("The User");
+        user.setLastName("User1");
+        user.setEmail("user1@email.com");
+
+        order = new Order();
+        order.setOrderId(1L);
+        order.setUser(user);
+        order.setOrderDate(LocalDate.now());
+        order.setOrderStatus(OrderStatus.PENDING);
+        order.setTotalAmount(BigDecimal.valueOf(1000));
+        order.setOrderItems(new HashSet<>());
+        for (int i = 0; i < 10; i++) {
+            order.getOrderItems().add(new OrderItem(order, products.get(i), 1, products.get(i).getPrice()));
+        }
+        user.setOrders(List.of(order));
+
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        for (long i = 0; i < 5; i++) {
+            CartItem cartItem = new CartItem();
+            cartItem.setId(i);
+            cartItem.setProduct(products.get((int) i));
+            cartItem.setQuantity(1);
+            cartItem.setUnitPrice(products.get((int) i).getPrice());
+            cart.addItem(cartItem);
+        }
+        user.setCart(cart);
+    }
+
+    @Benchmark
+    public List<ProductDto> productPageDtoMapper() {
+        List<ProductDto> productDtos = new ArrayList<>(products.size());
+        for (Product product : products) {
+            productDtos.add(dtoMapper.toProductDto(product));
+        }
+        return productDtos;
+    }
+
+    @Benchmark
+    public List<ProductDto> productPageModelMapper() {
+        List<ProductDto> productDtos = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ProductDto productDto = modelMapper.map(product, ProductDto.class);
+            productDto.setImages(product.getImages().stream()
+                    .map(image -> modelMapper.map(image, ImageDto.class))
+                    .toList());
+            productDtos.add(productDto);
+        }
+        return productDtos;
+    }
+
+    @Benchmark
+    public OrderDto orderDtoMapper() {
+        return dtoMapper.toOrderDto(order);
+    }
+
+    @Benchmark
+    public OrderDto orderModelMapper() {
+        return modelMapper.map(order, OrderDto.class);
+    }
+
+    @Benchmark
+    public UserDto userDtoMapper() {
+        return dtoMapper.toUserDto(user);
+    }
+
+    @Benchmark
+    public UserDto userModelMapper() {
+        return modelMapper.map(user, UserDto.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DtoMappingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
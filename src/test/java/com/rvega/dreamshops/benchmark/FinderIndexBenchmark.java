@@ -0,0 +1,200 @@
+package com.rvega.dreamshops.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the SQL issued by each repository finder on a catalog of one million products,
+ * on the baseline schema (migration V1) and with the finder indexes (migration V2).
+ * <p>
+ * The database is an in-memory H2 in MySQL mode, migrated by Flyway exactly like the application database.
+ * Absolute numbers differ from MySQL, but the gap between a full scan and an index lookup is the same.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=com.rvega.dreamshops.benchmark.FinderIndexBenchmark -Dexec.classpathScope=test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FinderIndexBenchmark {
+    private static final int PAGE = 21;
+
+    @Param({"1", "2"})
+    private String schemaVersion;
+
+    @Param({"1000000"})
+    private int rows;
+
+    private Connection connection;
+    private PreparedStatement findByBrand;
+    private PreparedStatement findByName;
+    private PreparedStatement findByBrandAndName;
+    private PreparedStatement countByBrandAndName;
+    private PreparedStatement findByCategoryName;
+    private PreparedStatement findByCategoryNameAndBrand;
+    private PreparedStatement findAllByPrice;
+    private PreparedStatement categoryFindByName;
+    private PreparedStatement userFindByEmail;
+    private PreparedStatement cartFindByUserId;
+    private PreparedStatement orderFindByUserId;
+    private PreparedStatement imageFindByProductIdIn;
+
+    @Setup
+    public void setUp() throws SQLException {
+        // H2 would otherwise return the cached result of a statement re-run with the same parameters
+        String url = "jdbc:h2:mem:finders;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;OPTIMIZE_REUSE_RESULTS=0";
+        Flyway.configure().dataSource(url, "sa", "").target(schemaVersion).load().migrate();
+        connection = DriverManager.getConnection(url, "sa", "");
+
+        int users = rows / 10;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("insert into category (name) select 'category-' || x from system_range(1, 1000)");
+            statement.execute("insert into product (name, brand, price, inventory, description, category_id) "
+                    + "select 'product-' || mod(x, 50000), 'brand-' || mod(x, 2000), mod(x, 5000), 10, 'A product', 1 + mod(x, 1000) "
+                    + "from system_range(1, " + rows + ")");
+            statement.execute("insert into image (file_name, file_type, download_url, product_id) "
+                    + "select 'image-' || x || '.png', 'image/png', '/api/v1/images/image/download/' || x, x "
+                    + "from system_range(1, " + rows + ")");
+            statement.execute("insert into user (first_name, last_name, email, password) "
+                    + "select 'first', 'last', 'user-' || x || '@example.com', 'secret' from system_range(1, " + users + ")");
+            statement.execute("insert into cart (total_amount, user_id) select 0, x from system_range(1, " + users + ")");
+            statement.execute("insert into orders (order_date, total_amount, order_status, user_id) "
+                    + "select current_date, 10, 'PENDING', 1 + mod(x, " + users + ") from system_range(1, " + rows + ")");
+            statement.execute("analyze");
+        }
+
+        String productColumns = "select p.id, p.name, p.brand, p.price, p.inventory, p.description, c.id, c.name "
+                + "from product p left join category c on c.id = p.category_id ";
+        findByBrand = prepare(productColumns + "where p.brand = ? order by p.id limit " + PAGE, "brand-1234");
+        findByName = prepare(productColumns + "where p.name = ? order by p.id limit " + PAGE, "product-4321");
+        findByBrandAndName = prepare(productColumns + "where p.brand = ? and p.name = ? order by p.id limit " + PAGE,
+                "brand-1234", "product-1234");
+        countByBrandAndName = prepare("select count(p.id) from product p where p.brand = ? and p.name = ?",
+                "brand-1234", "product-1234");
+        findByCategoryName = prepare(productColumns + "where c.name = ? order by p.id limit " + PAGE, "category-500");
+        findByCategoryNameAndBrand = prepare(productColumns + "where c.name = ? and p.brand = ? order by p.id limit " + PAGE,
+                "category-500", "brand-500");
+        findAllByPrice = prepare(productColumns + "where (p.price > ? or p.price = ? and p.id > ?) order by p.price, p.id limit " + PAGE,
+                2500, 2500, rows / 2);
+        categoryFindByName = prepare("select c.id, c.name from category c where c.name = ?", "category-500");
+        userFindByEmail = prepare("select u.id, u.email from user u where u.email = ?", "user-" + users / 2 + "@example.com");
+        cartFindByUserId = prepare("select c.id, c.total_amount from cart c where c.user_id = ?", users / 2);
+        orderFindByUserId = prepare("select o.order_id, o.order_status from orders o where o.user_id = ?", users / 2);
+        imageFindByProductIdIn = prepare("select i.id, i.file_name, i.download_url, i.product_id from image i where i.product_id in (?, ?, ?, ?, ?)",
+                rows / 2, rows / 2 + 1, rows / 2 + 2, rows / 2 + 3, rows / 2 + 4);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public int productFindByBrand() throws SQLException {
+        return read(findByBrand);
+    }
+
+    @Benchmark
+    public int productFindByName() throws SQLException {
+        return read(findByName);
+    }
+
+    @Benchmark
+    public int productFindByBrandAndName() throws SQLException {
+        return read(findByBrandAndName);
+    }
+
+    @Benchmark
+    public int productCountByBrandAndName() throws SQLException {
+        return read(countByBrandAndName);
+    }
+
+    @Benchmark
+    public int productFindByCategoryName() throws SQLException {
+        return read(findByCategoryName);
+    }
+
+    @Benchmark
+    public int productFindByCategoryNameAndBrand() throws SQLException {
+        return read(findByCategoryNameAndBrand);
+    }
+
+    @Benchmark
+    public int productFindAllSortedByPrice() throws SQLException {
+        return read(findAllByPrice);
+    }
+
+    @Benchmark
+    public int categoryFindByName() throws SQLException {
+        return read(categoryFindByName);
+    }
+
+    @Benchmark
+    public int userFindByEmail() throws SQLException {
+        return read(userFindByEmail);
+    }
+
+    @Benchmark
+    public int cartFindByUserId() throws SQLException {
+        return read(cartFindByUserId);
+    }
+
+    @Benchmark
+    public int orderFindByUserId() throws SQLException {
+        return read(orderFindByUserId);
+    }
+
+    @Benchmark
+    public int imageFindByProductIdIn() throws SQLException {
+        return read(imageFindByProductIdIn);
+    }
+
+    private PreparedStatement prepare(String sql, Object... parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        return statement;
+    }
+
+    private static int read(PreparedStatement statement) throws SQLException {
+        int count = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FinderIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
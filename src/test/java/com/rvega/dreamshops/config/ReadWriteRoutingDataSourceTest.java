@@ -0,0 +1,149 @@
+package com.rvega.dreamshops.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routes between two in-memory H2 databases, each holding a row naming the database.
+ */
+class ReadWriteRoutingDataSourceTest {
+    private final AtomicBoolean replicaDown = new AtomicBoolean();
+    private final AtomicReference<String> user = new AtomicReference<>();
+    private ReadWriteRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        route(Duration.ofMinutes(1));
+    }
+
+    private void route(Duration stickiness) {
+        DataSource primary = database("routing_primary", "primary");
+        DataSource replica = new DelegatingDataSource(database("routing_replica", "replica")) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (replicaDown.get()) {
+                    throw new SQLException("Connection refused");
+                }
+                return super.getConnection();
+            }
+        };
+        routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica), stickiness, user::get);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        routingDataSource.close();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        assertThat(readOnlyDatabase()).isEqualTo("replica");
+        assertThat(readWriteDatabase()).isEqualTo("primary");
+        assertThat(database()).isEqualTo("primary");
+    }
+
+    @Test
+    void readsForCachesGoToThePrimary() {
+        String database = readOnly.execute(status -> ReadWriteRoutingDataSource.readFromPrimary(this::database));
+        assertThat(database).isEqualTo("primary");
+        assertThat(readOnlyDatabase()).isEqualTo("replica");
+    }
+
+    @Test
+    void readsFallBackToThePrimaryUntilTheReplicaIsHealthyAgain() {
+        replicaDown.set(true);
+        assertThat(readOnlyDatabase()).isEqualTo("primary");
+
+        replicaDown.set(false);
+        assertThat(readOnlyDatabase()).isEqualTo("primary");
+        routingDataSource.checkReplicas();
+        assertThat(readOnlyDatabase()).isEqualTo("replica");
+    }
+
+    @Test
+    void readsOfAUserStickToThePrimaryAfterTheirWrite() {
+        user.set("alice");
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("update node set name = name"));
+        assertThat(readOnlyDatabase()).isEqualTo("primary");
+
+        user.set("bob");
+        assertThat(readOnlyDatabase()).isEqualTo("replica");
+        user.set(null);
+        assertThat(readOnlyDatabase()).isEqualTo("replica");
+    }
+
+    @Test
+    void readsOfAStickyUserGoBackToTheReplicaAfterTheWindow() throws Exception {
+        routingDataSource.close();
+        route(Duration.ofMillis(200));
+        user.set("alice");
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("update node set name = name"));
+        long wroteAt = System.nanoTime();
+        assertThat(readOnlyDatabase()).isEqualTo("primary");
+
+        // Keep reading past the window: reads must not renew it
+        while (System.nanoTime() - wroteAt < TimeUnit.MILLISECONDS.toNanos(400)) {
+            readOnlyDatabase();
+            Thread.sleep(50);
+        }
+        assertThat(readOnlyDatabase()).isEqualTo("replica");
+    }
+
+    @Test
+    void rolledBackWritesDoNotMakeReadsSticky() {
+        user.set("alice");
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("update node set name = name");
+            status.setRollbackOnly();
+        });
+        assertThat(readOnlyDatabase()).isEqualTo("replica");
+    }
+
+    private String readOnlyDatabase() {
+        return readOnly.execute(status -> database());
+    }
+
+    private String readWriteDatabase() {
+        return readWrite.execute(status -> database());
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static DataSource database(String name, String node) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists node (name varchar(20))");
+        jdbcTemplate.execute("delete from node");
+        jdbcTemplate.update("insert into node (name) values (?)", node);
+        return dataSource;
+    }
+}
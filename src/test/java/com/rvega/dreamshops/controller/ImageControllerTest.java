@@ -0,0 +1,399 @@
+package com.rvega.dreamshops.controller;
+
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.model.Image;
+import com.rvega.dreamshops.model.Product;
+import com.rvega.dreamshops.repository.CategoryRepository;
+import com.rvega.dreamshops.repository.ImageRepository;
+import com.rvega.dreamshops.repository.ProductRepository;
+import com.rvega.dreamshops.service.image.IImageService;
+import com.rvega.dreamshops.service.image.ImageStorage;
+import com.rvega.dreamshops.service.product.IProductService;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ImageControllerTest {
+    private static final String CONTENT = "0123456789abcdefghij";
+    private static final String DOWNLOAD_URL = "/api/v1/images/image/download/";
+    private static final LocalDateTime LAST_MODIFIED = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private IProductService productService;
+
+    @Autowired
+    private IImageService imageService;
+
+    private Product product;
+    private Image image;
+    private String eTag;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String contentHash = imageStorage.store(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8))).contentHash();
+        eTag = "\"" + contentHash + "\"";
+        transactionTemplate.executeWithoutResult(status -> {
+            Category category = new Category("cameras");
+            entityManager.persist(category);
+            product = new Product("camera", "acme", BigDecimal.TEN, 1, "A camera", category);
+            image = new Image();
+            image.setFileName("camera.png");
+            image.setFileType("image/png");
+            image.setContentHash(contentHash);
+            image.setFileSize((long) CONTENT.length());
+            image.setLastModified(LAST_MODIFIED);
+            image.setProduct(product);
+            product.setImages(List.of(image));
+            entityManager.persist(product);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.deleteAll();
+            categoryRepository.deleteAll();
+        });
+    }
+
+    @Test
+    void downloadsTheWholeFile() throws Exception {
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length()))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void downloadsARange() throws Exception {
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()).header(HttpHeaders.RANGE, "bytes=5-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-9/20"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 5))
+                .andExpect(content().string("56789"));
+
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()).header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 17-19/20"))
+                .andExpect(content().string("hij"));
+
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()).header(HttpHeaders.RANGE, "bytes=15-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("fghij"));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRanges() throws Exception {
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()).header(HttpHeaders.RANGE, "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */20"));
+    }
+
+    @Test
+    void sendsTheWholeFileWhenTheRangeIsOfAnotherVersion() throws Exception {
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()).header(HttpHeaders.RANGE, "bytes=5-9")
+                        .header(HttpHeaders.IF_RANGE, "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()).header(HttpHeaders.RANGE, "bytes=5-9")
+                        .header(HttpHeaders.IF_RANGE, eTag))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("56789"));
+    }
+
+    @Test
+    void migratesLegacyBlobsOnFirstDownload() throws Exception {
+        byte[] legacy = "legacy image".getBytes(StandardCharsets.UTF_8);
+        jdbcTemplate.update("insert into image (id, file_name, file_type, image, product_id) values (?, ?, ?, ?, ?)",
+                999_999L, "legacy.png", "image/png", legacy, product.getId());
+
+        mockMvc.perform(get(DOWNLOAD_URL + 999_999L))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(legacy));
+
+        assertThat(jdbcTemplate.queryForMap("select content_hash, file_size, image from image where id = 999999"))
+                .containsEntry("FILE_SIZE", (long) legacy.length)
+                .containsEntry("IMAGE", null)
+                .extractingByKey("CONTENT_HASH").isNotNull();
+    }
+
+    @Test
+    void uploadsFilesWithTheirHashSizeAndDownloadUrl() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        MvcResult result = mockMvc.perform(multipart("/api/v1/images/upload")
+                        .file(new MockMultipartFile("files", "front.png", "image/png", "front".getBytes(StandardCharsets.UTF_8)))
+                        .file(new MockMultipartFile("files", "back.png", "image/png", "back side".getBytes(StandardCharsets.UTF_8)))
+                        .param("productId", product.getId().toString()))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<Integer> ids = JsonPath.read(result.getResponse().getContentAsString(), "$.data[*].id");
+        assertThat(ids).hasSize(2);
+        // Each image is written by its insert alone, with no update after it
+        assertThat(statistics.getEntityStatistics(Image.class.getName()).getInsertCount()).isEqualTo(2);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        List<Image> uploaded = imageRepository.findAllById(ids.stream().map(Long::valueOf).toList());
+        assertThat(uploaded)
+                .extracting(Image::getFileName, Image::getFileSize)
+                .containsExactlyInAnyOrder(tuple("front.png", 5L), tuple("back.png", 9L));
+        List<String> downloadUrls = JsonPath.read(result.getResponse().getContentAsString(), "$.data[*].downloadUrl");
+        assertThat(downloadUrls.get(1)).startsWith(DOWNLOAD_URL + ids.get(1) + "?v=");
+
+        mockMvc.perform(get(DOWNLOAD_URL + ids.get(1)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("back side"));
+    }
+
+    @Test
+    void downloadsResizedVariants() throws Exception {
+        BufferedImage photo = new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(photo, "jpeg", encoded);
+        transactionTemplate.executeWithoutResult(status -> {
+            Image stored = entityManager.find(Image.class, image.getId());
+            try {
+                stored.setContentHash(imageStorage.store(new ByteArrayInputStream(encoded.toByteArray())).contentHash());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            stored.setFileType("image/jpeg");
+        });
+
+        MvcResult result = mockMvc.perform(get(DOWNLOAD_URL + image.getId()).param("size", "THUMBNAIL"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andReturn();
+
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertThat(thumbnail.getWidth()).isEqualTo(200);
+        assertThat(thumbnail.getHeight()).isEqualTo(133);
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).endsWith("-thumbnail\"");
+    }
+
+    @Test
+    void answersConditionalRequestsWithNotModified() throws Exception {
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Wed, 01 May 2024 12:00:00 GMT"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"));
+
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()).header(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 01 May 2024 12:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get(DOWNLOAD_URL + image.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void letsVersionedUrlsBeCachedForever() throws Exception {
+        String versionedUrl = JsonPath.read(mockMvc.perform(get("/api/v1/products/product/" + product.getId() + "/product"))
+                .andReturn().getResponse().getContentAsString(), "$.data.images[0].downloadUrl");
+        assertThat(versionedUrl).isEqualTo(DOWNLOAD_URL + image.getId() + "?v=" + eTag.replace("\"", ""));
+
+        mockMvc.perform(get(versionedUrl))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+    }
+
+    @Test
+    void sharesOneFileBetweenImagesWithTheSameContent() throws Exception {
+        byte[] packshot = "shared packshot".getBytes(StandardCharsets.UTF_8);
+        MvcResult result = mockMvc.perform(multipart("/api/v1/images/upload")
+                        .file(new MockMultipartFile("files", "red.png", "image/png", packshot))
+                        .file(new MockMultipartFile("files", "blue.png", "image/png", packshot))
+                        .param("productId", product.getId().toString()))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Integer> ids = JsonPath.read(result.getResponse().getContentAsString(), "$.data[*].id");
+        String contentHash = imageRepository.findById(ids.get(0).longValue()).orElseThrow().getContentHash();
+        assertThat(jdbcTemplate.queryForObject("select ref_count from image_content where content_hash = ?", Integer.class, contentHash))
+                .isEqualTo(2);
+
+        mockMvc.perform(delete("/api/v1/images/image/" + ids.get(0) + "/delete")).andExpect(status().isOk());
+        assertThat(imageStorage.load(contentHash).exists()).isTrue();
+        mockMvc.perform(get(DOWNLOAD_URL + ids.get(1))).andExpect(content().bytes(packshot));
+
+        mockMvc.perform(delete("/api/v1/images/image/" + ids.get(1) + "/delete")).andExpect(status().isOk());
+        assertThat(imageStorage.load(contentHash).exists()).isFalse();
+        assertThat(jdbcTemplate.queryForList("select ref_count from image_content where content_hash = ?", Integer.class, contentHash))
+                .isEmpty();
+    }
+
+    @Test
+    void releasesTheFileEachConcurrentUpdateReplaced() throws Exception {
+        MvcResult result = mockMvc.perform(multipart("/api/v1/images/upload")
+                        .file(new MockMultipartFile("files", "draft.png", "image/png", "draft".getBytes(StandardCharsets.UTF_8)))
+                        .param("productId", product.getId().toString()))
+                .andExpect(status().isOk())
+                .andReturn();
+        long id = JsonPath.<Integer>read(result.getResponse().getContentAsString(), "$.data[0].id").longValue();
+        String draftHash = imageRepository.findById(id).orElseThrow().getContentHash();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> updates = new ArrayList<>();
+            for (String version : List.of("first", "second")) {
+                byte[] bytes = version.getBytes(StandardCharsets.UTF_8);
+                updates.add(executor.submit(() -> imageService.updateImage(new MockMultipartFile("file", version + ".png", "image/png", bytes), id)));
+            }
+            for (Future<?> update : updates) {
+                update.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Only the file of the last update is still referred to, once
+        String finalHash = imageRepository.findById(id).orElseThrow().getContentHash();
+        List<String> hashes = List.of(draftHash, sha256("first"), sha256("second"));
+        assertThat(hashes).contains(finalHash);
+        for (String hash : hashes) {
+            assertThat(jdbcTemplate.queryForList("select ref_count from image_content where content_hash = ?", Integer.class, hash))
+                    .isEqualTo(hash.equals(finalHash) ? List.of(1) : List.of());
+            assertThat(imageStorage.load(hash).exists()).isEqualTo(hash.equals(finalHash));
+        }
+    }
+
+    @Test
+    void removesDeletedImagesFromTheirProduct() throws Exception {
+        String productUrl = "/api/v1/products/product/" + product.getId() + "/product";
+        mockMvc.perform(get(productUrl))
+                .andExpect(jsonPath("$.data.images[0].id").value(image.getId()));
+
+        mockMvc.perform(delete("/api/v1/images/image/" + image.getId() + "/delete")).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/v1/images/image/" + image.getId() + "/delete")).andExpect(status().isNotFound());
+        mockMvc.perform(get(productUrl))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.images.length()").value(0));
+    }
+
+    @Test
+    void keepsTheFilesOfProductsWhoseDeletionRollsBack() throws Exception {
+        MvcResult result = mockMvc.perform(multipart("/api/v1/images/upload")
+                        .file(new MockMultipartFile("files", "ordered.png", "image/png", "ordered".getBytes(StandardCharsets.UTF_8)))
+                        .param("productId", product.getId().toString()))
+                .andExpect(status().isOk())
+                .andReturn();
+        Integer id = JsonPath.read(result.getResponse().getContentAsString(), "$.data[0].id");
+        String contentHash = imageRepository.findById(id.longValue()).orElseThrow().getContentHash();
+        // An order line keeps the product from being deleted
+        jdbcTemplate.update("insert into order_item (quantity, price, product_id) values (1, 10, ?)", product.getId());
+        try {
+            assertThatThrownBy(() -> productService.deleteProductById(product.getId()))
+                    .isInstanceOf(DataIntegrityViolationException.class);
+
+            assertThat(imageStorage.load(contentHash).exists()).isTrue();
+            assertThat(jdbcTemplate.queryForObject("select ref_count from image_content where content_hash = ?", Integer.class, contentHash))
+                    .isEqualTo(1);
+            mockMvc.perform(get(DOWNLOAD_URL + id)).andExpect(status().isOk());
+        } finally {
+            jdbcTemplate.update("delete from order_item where product_id = ?", product.getId());
+        }
+    }
+
+    @Test
+    void deletesImagesThatAreNotMigratedYet() throws Exception {
+        jdbcTemplate.update("insert into image (id, file_name, file_type, image, product_id) values (?, ?, ?, ?, ?)",
+                999_998L, "legacy.png", "image/png", "legacy image".getBytes(StandardCharsets.UTF_8), product.getId());
+
+        mockMvc.perform(delete("/api/v1/images/image/999998/delete")).andExpect(status().isOk());
+
+        assertThat(imageRepository.existsById(999_998L)).isFalse();
+    }
+
+    @Test
+    void answersNotFoundForUnknownImages() throws Exception {
+        mockMvc.perform(get(DOWNLOAD_URL + 123_456_789L)).andExpect(status().isNotFound());
+    }
+
+    private static String sha256(String content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
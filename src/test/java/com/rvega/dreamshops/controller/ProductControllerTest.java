@@ -0,0 +1,446 @@
+package com.rvega.dreamshops.controller;
+
+import com.rvega.dreamshops.dto.BulkProductUpdateResultDto;
+import com.rvega.dreamshops.dto.ProductImportResultDto;
+import com.rvega.dreamshops.dto.ProductImportRowDto;
+import com.rvega.dreamshops.enums.ProductFacet;
+import com.rvega.dreamshops.enums.ProductImportFormat;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.model.Image;
+import com.rvega.dreamshops.model.Product;
+import com.rvega.dreamshops.repository.CategoryRepository;
+import com.rvega.dreamshops.repository.ProductRepository;
+import com.rvega.dreamshops.request.AddProductRequest;
+import com.rvega.dreamshops.request.BulkProductUpdateRequest;
+import com.rvega.dreamshops.request.ProductUpdateRequest;
+import com.rvega.dreamshops.service.category.CategoryDictionary;
+import com.rvega.dreamshops.service.product.IProductService;
+import com.rvega.dreamshops.service.product.ProductCache;
+import com.rvega.dreamshops.service.search.ProductSearchIndex;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductControllerTest {
+    private static final int PRODUCT_COUNT = 30;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private IProductService productService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        productCache.invalidateAll();
+        transactionTemplate.executeWithoutResult(status -> {
+            Category category = new Category("phones");
+            entityManager.persist(category);
+            for (int i = 0; i < PRODUCT_COUNT; i++) {
+                Product product = new Product("phone", "acme", BigDecimal.valueOf(100 + i), 10, "A phone", category);
+                List<Image> images = new ArrayList<>();
+                for (int j = 0; j < 2; j++) {
+                    Image image = new Image();
+                    image.setFileName("phone-" + i + "-" + j + ".png");
+                    image.setFileType("image/png");
+                    image.setProduct(product);
+                    images.add(image);
+                }
+                product.setImages(images);
+                entityManager.persist(product);
+            }
+        });
+        categoryDictionary.reload();
+        productSearchIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.deleteAll();
+            categoryRepository.deleteAll();
+        });
+        categoryDictionary.reload();
+        productSearchIndex.rebuild();
+    }
+
+    /**
+     * Every listing reads one page of product projections joined with their category, then the image metadata of the
+     * whole page with a single IN query, whatever the page size. No entity is loaded.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/api/v1/products/all?size=25",
+            "/api/v1/products/products/by/brand-and-name?brandName=acme&productName=phone&size=25",
+            "/api/v1/products/products/by/category-and-brand?category=phones&brand=acme&size=25",
+            "/api/v1/products/products/phone/products?size=25",
+            "/api/v1/products/product/by-brand?brand=acme&size=25",
+            "/api/v1/products/product/phones/all/products?size=25"
+    })
+    void listingIssuesConstantNumberOfStatements(String url) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.products.length()").value(25))
+                .andExpect(jsonPath("$.data.products[0].images.length()").value(2))
+                .andExpect(jsonPath("$.data.nextCursor").isNotEmpty())
+                .andExpect(jsonPath("$.data.products[0].category.name").value("phones"));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void cursorResumesListingAfterLastProductOfPage() throws Exception {
+        String cursor = JsonPath.read(mockMvc.perform(get("/api/v1/products/all?size=20&sort=PRICE_DESC"))
+                .andExpect(jsonPath("$.data.products[19].price").value(110))
+                .andReturn().getResponse().getContentAsString(), "$.data.nextCursor");
+
+        mockMvc.perform(get("/api/v1/products/all?size=20&sort=PRICE_DESC").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.products.length()").value(10))
+                .andExpect(jsonPath("$.data.products[0].price").value(109))
+                .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void repeatedReadsAreServedFromCacheUntilProductChanges() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String url = "/api/v1/products/product/by-brand?brand=acme&size=5";
+        Product product = productRepository.findAll().get(0);
+        String productUrl = "/api/v1/products/product/" + product.getId() + "/product";
+
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        mockMvc.perform(get(productUrl)).andExpect(status().isOk());
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        mockMvc.perform(get(productUrl)).andExpect(status().isOk());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        ProductUpdateRequest request = new ProductUpdateRequest();
+        request.setName(product.getName());
+        request.setBrand("globex");
+        request.setPrice(product.getPrice());
+        request.setInventory(product.getInventory());
+        request.setDescription(product.getDescription());
+        request.setCategory(product.getCategory());
+        productService.updateProduct(request, product.getId());
+
+        mockMvc.perform(get(productUrl))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.brand").value("globex"));
+        mockMvc.perform(get("/api/v1/products/product/by-brand?brand=globex"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.products.length()").value(1));
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void readsDuringAWriteAreNotCachedPastItsCommit() throws Exception {
+        Long productId = productRepository.findAll().get(0).getId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findById(productId).orElseThrow();
+            product.setInventory(3);
+            productRepository.saveAndFlush(product);
+            productCache.invalidate(product);
+            // Another request reads and caches the row as it was before the commit
+            CompletableFuture.runAsync(() -> productService.getProductDtoById(productId)).join();
+        });
+
+        mockMvc.perform(get("/api/v1/products/product/" + productId + "/product"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.inventory").value(3));
+    }
+
+    @Test
+    void addProductResolvesCategoryWithoutQuery() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        AddProductRequest request = new AddProductRequest();
+        request.setName("tablet");
+        request.setBrand("acme");
+        request.setPrice(BigDecimal.valueOf(300));
+        request.setInventory(3);
+        request.setCategory(new Category("Phones"));
+        statistics.clear();
+
+        Product product = productService.addProduct(request);
+
+        // One duplicate check and one insert, the category comes from the dictionary
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(product.getCategory().getName()).isEqualTo("phones");
+    }
+
+    @Test
+    void rejectsProductsWithoutPrice() {
+        AddProductRequest request = new AddProductRequest();
+        request.setName("tablet");
+        request.setBrand("acme");
+        request.setInventory(3);
+        request.setCategory(new Category("Phones"));
+
+        assertThatThrownBy(() -> productService.addProduct(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Price is required");
+        // The column is not nullable either, so every product has a price keyset
+        Product product = productRepository.findAll().get(0);
+        product.setPrice(null);
+        assertThatThrownBy(() -> productRepository.saveAndFlush(product))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void rejectsNegativePrices() {
+        AddProductRequest request = new AddProductRequest();
+        request.setName("tablet");
+        request.setBrand("acme");
+        request.setPrice(new BigDecimal("-0.01"));
+        request.setInventory(3);
+        request.setCategory(new Category("Phones"));
+
+        assertThatThrownBy(() -> productService.addProduct(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Price must be zero or more");
+        assertThat(productRepository.existsByNameAndBrand("tablet", "acme")).isFalse();
+    }
+
+    @Test
+    void searchReadsOnlyTheRequestedPage() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/v1/products/search?q=acme pho&page=1&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.totalHits").value(PRODUCT_COUNT))
+                .andExpect(jsonPath("$.data.products.length()").value(10))
+                .andExpect(jsonPath("$.data.products[0].images.length()").value(2));
+
+        // The page of products and the images of the page
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void exportStreamsEveryProductWithOneImageQueryPerChunk() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        MvcResult result = mockMvc.perform(get("/api/v1/products/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(PRODUCT_COUNT);
+        assertThat(lines[0]).startsWith("{").contains("\"brand\":\"acme\"").contains("phone-0-1.png");
+        // The product cursor and the images of its only chunk
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void conditionalReadsAreAnsweredWithoutQueryUntilCatalogChanges() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Product product = productRepository.findAll().get(0);
+        String productUrl = "/api/v1/products/product/" + product.getId() + "/product";
+        String categoryUrl = "/api/v1/products/product/phones/all/products";
+        String categoriesUrl = "/api/v1/categories/all";
+
+        String productTag = mockMvc.perform(get(productUrl)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String categoryTag = mockMvc.perform(get(categoryUrl)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String categoriesTag = mockMvc.perform(get(categoriesUrl)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(productTag).isNotBlank();
+
+        productCache.invalidateAll();
+        statistics.clear();
+        mockMvc.perform(get(productUrl).header(HttpHeaders.IF_NONE_MATCH, productTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get(categoryUrl).header(HttpHeaders.IF_NONE_MATCH, categoryTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(categoriesUrl).header(HttpHeaders.IF_NONE_MATCH, categoriesTag))
+                .andExpect(status().isNotModified());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        Product other = productRepository.findAll().get(1);
+        ProductUpdateRequest request = new ProductUpdateRequest();
+        request.setName(other.getName());
+        request.setBrand("globex");
+        request.setPrice(other.getPrice());
+        request.setInventory(other.getInventory());
+        request.setDescription(other.getDescription());
+        request.setCategory(other.getCategory());
+        productService.updateProduct(request, other.getId());
+
+        // Another product changed: this product is still current, the category listing is not
+        mockMvc.perform(get(productUrl).header(HttpHeaders.IF_NONE_MATCH, productTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(categoryUrl).header(HttpHeaders.IF_NONE_MATCH, categoryTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(categoryTag)));
+        mockMvc.perform(get(categoriesUrl).header(HttpHeaders.IF_NONE_MATCH, categoriesTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void importSkipsDuplicatesAndInvalidRowsAndBatchesInserts() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String csv = """
+                name,brand,price,inventory,description,category
+                phone,acme,10,1,Already in the catalog,phones
+                tablet,acme,300,5,"A tablet, with a 10"" screen",tablets
+                tablet,acme,310,5,Same tablet again,tablets
+                watch,acme,cheap,5,Unreadable price,phones
+                band,acme,20,3,"A band
+                over two lines",phones
+                """;
+        statistics.clear();
+
+        ProductImportResultDto result = productService.importProducts(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ProductImportFormat.CSV);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getDuplicates()).isEqualTo(2);
+        assertThat(result.getInvalid()).isEqualTo(1);
+        assertThat(result.getRejected()).extracting(ProductImportRowDto::getRow).containsExactly(1, 3, 4);
+        // The duplicate check, the new category and one batch of product inserts
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+
+        Product tablet = productRepository.findById(productSearchIndex.search("tablet")[0]).orElseThrow();
+        assertThat(tablet.getDescription()).isEqualTo("A tablet, with a 10\" screen");
+        assertThat(tablet.getCategory().getName()).isEqualTo("tablets");
+        assertThat(productSearchIndex.search("band lines")).hasSize(1);
+    }
+
+    @Test
+    void importReadsNdjsonAndReportsMalformedLines() {
+        String ndjson = """
+                {"name":"tablet","brand":"acme","price":300,"inventory":5,"category":{"name":"phones"}}
+                {"name":"broken",
+                {"name":"watch","brand":"acme","price":-1,"inventory":5,"category":{"name":"phones"}}
+                """;
+
+        ProductImportResultDto result = productService.importProducts(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ProductImportFormat.NDJSON);
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getInvalid()).isEqualTo(2);
+        assertThat(result.getRejected()).extracting(ProductImportRowDto::getReason).satisfiesExactly(
+                reason -> assertThat(reason).startsWith("Malformed JSON"),
+                reason -> assertThat(reason).isEqualTo("Price must be zero or more"));
+    }
+
+    @Test
+    void bulkUpdateChangesPriceAndStockWithoutLoadingProducts() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Product> products = productRepository.findAll();
+        Product first = products.get(0);
+        Product second = products.get(1);
+        String productUrl = "/api/v1/products/product/" + first.getId() + "/product";
+        String productTag = mockMvc.perform(get(productUrl)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+
+        BulkProductUpdateResultDto result = productService.updateProductsInBulk(List.of(
+                new BulkProductUpdateRequest(first.getId(), BigDecimal.valueOf(30), null),
+                new BulkProductUpdateRequest(second.getId(), null, 0),
+                new BulkProductUpdateRequest(-1L, BigDecimal.ONE, 1)));
+
+        assertThat(result.getUpdated()).isEqualTo(2);
+        assertThat(result.getNotFound()).containsExactly(-1L);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        // The cached product and its tag are stale, the search index has moved it to its new price bucket
+        mockMvc.perform(get(productUrl).header(HttpHeaders.IF_NONE_MATCH, productTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.price").value(30))
+                .andExpect(jsonPath("$.data.inventory").value(10));
+        assertThat(productSearchIndex.search(null, Map.of(ProductFacet.PRICE, List.of("25-50"))).productIds())
+                .containsExactly(first.getId());
+        assertThat(productRepository.findById(second.getId()).orElseThrow())
+                .extracting(Product::getPrice, Product::getInventory)
+                .containsExactly(second.getPrice(), 0);
+    }
+
+    @Test
+    void bulkUpdateRejectsInvalidChangesWithoutApplyingAny() {
+        Product product = productRepository.findAll().get(0);
+
+        assertThatThrownBy(() -> productService.updateProductsInBulk(List.of(
+                new BulkProductUpdateRequest(product.getId(), BigDecimal.ONE, null),
+                new BulkProductUpdateRequest(product.getId(), null, -5))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getPrice()).isEqualByComparingTo(product.getPrice());
+    }
+}
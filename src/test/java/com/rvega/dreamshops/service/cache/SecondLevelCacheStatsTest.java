@@ -0,0 +1,25 @@
+package com.rvega.dreamshops.service.cache;
+
+import com.rvega.dreamshops.dto.SecondLevelCacheStatsDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SecondLevelCacheStatsTest {
+
+    @Autowired
+    private SecondLevelCacheStats secondLevelCacheStats;
+
+    @Test
+    void reportsTheRegionsWhenTheTestProfileEnablesStatistics() {
+        assertThat(secondLevelCacheStats.getStats())
+                .extracting(SecondLevelCacheStatsDto::getRegion)
+                .contains("product", "category", "image")
+                .isSorted();
+    }
+}
@@ -0,0 +1,94 @@
+package com.rvega.dreamshops.service.cart;
+
+import com.rvega.dreamshops.model.Cart;
+import com.rvega.dreamshops.model.CartItem;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CartServiceTest {
+
+    @Autowired
+    private ICartService cartService;
+
+    @Autowired
+    private ICartItemService cartItemService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long cartId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Category category = new Category("cart-test");
+            entityManager.persist(category);
+            Product product = new Product("mug", "acme", BigDecimal.TEN, 100, "A mug", category);
+            entityManager.persist(product);
+            Cart cart = new Cart();
+            CartItem item = new CartItem();
+            item.setProduct(product);
+            item.setQuantity(2);
+            item.setUnitPrice(product.getPrice());
+            item.setTotalPrice();
+            cart.addItem(item);
+            entityManager.persist(cart);
+            cartId = cart.getId();
+            productId = product.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createQuery("delete from CartItem").executeUpdate();
+            entityManager.createQuery("delete from Cart").executeUpdate();
+            entityManager.createQuery("delete from Product").executeUpdate();
+            entityManager.createQuery("delete from Category c where c.name = 'cart-test'").executeUpdate();
+        });
+    }
+
+    @Test
+    void readingTheCartWritesNothing() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        cartService.getCart(cartId);
+        BigDecimal totalPrice = cartService.getTotalPrice(cartId);
+
+        assertThat(totalPrice).isEqualByComparingTo(BigDecimal.valueOf(20));
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        assertThat(statistics.getEntityInsertCount()).isZero();
+    }
+
+    @Test
+    void changingTheItemsPersistsTheTotal() {
+        cartItemService.updateItemQuantity(cartId, productId, 5);
+
+        assertThat(cartService.getTotalPrice(cartId)).isEqualByComparingTo(BigDecimal.valueOf(50));
+    }
+}
@@ -0,0 +1,55 @@
+package com.rvega.dreamshops.service.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogVersionTest {
+
+    @Test
+    void deletedProductsDoNotGoBackToAnOlderTag() {
+        CatalogVersion catalogVersion = new CatalogVersion(100);
+        catalogVersion.bumpCategories();
+        String beforeChange = catalogVersion.productETag(1L);
+        catalogVersion.bumpProduct(1L);
+        String afterChange = catalogVersion.productETag(1L);
+
+        catalogVersion.removeProduct(1L);
+
+        assertThat(catalogVersion.productETag(1L)).isNotIn(beforeChange, afterChange);
+    }
+
+    @Test
+    void evictedProductsKeepATagAtLeastAsNewAsTheirChange() throws InterruptedException {
+        CatalogVersion catalogVersion = new CatalogVersion(10);
+        catalogVersion.bumpCategories();
+        long[] changedAt = new long[1001];
+        for (int id = 1; id <= 1000; id++) {
+            catalogVersion.bumpProduct((long) id);
+            changedAt[id] = version(catalogVersion.productETag((long) id));
+        }
+
+        // Evictions run in the background, so wait until most products are evicted
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (evicted(catalogVersion, changedAt) < 900 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(evicted(catalogVersion, changedAt)).isGreaterThanOrEqualTo(900);
+        for (int id = 1; id <= 1000; id++) {
+            assertThat(version(catalogVersion.productETag((long) id))).isGreaterThanOrEqualTo(changedAt[id]);
+        }
+    }
+
+    private static long evicted(CatalogVersion catalogVersion, long[] changedAt) {
+        return LongStream.rangeClosed(1, 1000)
+                .filter(id -> version(catalogVersion.productETag(id)) != changedAt[(int) id])
+                .count();
+    }
+
+    private static long version(String eTag) {
+        return Long.parseLong(eTag.substring(eTag.indexOf('-') + 1));
+    }
+}
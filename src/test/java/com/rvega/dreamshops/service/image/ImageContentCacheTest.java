@@ -0,0 +1,80 @@
+package com.rvega.dreamshops.service.image;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageContentCacheTest {
+    private final ImageContentCache cache = new ImageContentCache(1, 1);
+
+    @Test
+    void holdsFilesInReadOnlyDirectBuffers() {
+        cache.get(file("abc-thumbnail.jpg", "thumbnail"));
+        ByteBuffer first = cache.get(file("abc-thumbnail.jpg", "thumbnail"));
+        ByteBuffer second = cache.get(file("abc-thumbnail.jpg", "thumbnail"));
+
+        assertThat(first.isDirect()).isTrue();
+        assertThat(first.isReadOnly()).isTrue();
+        assertThat(StandardCharsets.UTF_8.decode(first).toString()).isEqualTo("thumbnail");
+        // Each caller gets its own position over the same memory
+        assertThat(second.remaining()).isEqualTo(9);
+        assertThat(cache.getStats().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void skipsFilesAboveTheEntrySize() {
+        assertThat(cache.get(file("large", "x".repeat(1025)))).isNull();
+        assertThat(cache.get(file("large", "x".repeat(1025)))).isNull();
+    }
+
+    @Test
+    void readsFilesIntoMemoryOnlyOnTheirSecondMiss() {
+        assertThat(cache.get(file("once", "one-off"))).isNull();
+        assertThat(cache.getStats().getSize()).isZero();
+
+        assertThat(cache.get(file("once", "one-off"))).isNotNull();
+        assertThat(cache.getStats().getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void admitsTwoFilesThatMissInTurnInTheSameDoorkeeperSet() {
+        String first = "abc-0";
+        String second = IntStream.range(1, 100_000).mapToObj(i -> "abc-" + i)
+                .filter(name -> ImageContentCache.doorkeeperSet(name) == ImageContentCache.doorkeeperSet(first))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(cache.get(file(first, "first"))).isNull();
+        assertThat(cache.get(file(second, "second"))).isNull();
+        assertThat(cache.get(file(first, "first"))).isNotNull();
+        assertThat(cache.get(file(second, "second"))).isNotNull();
+    }
+
+    @Test
+    void evictsAFileWithItsVariants() {
+        for (int i = 0; i < 2; i++) {
+            cache.get(file("abc", "original"));
+            cache.get(file("abc-thumbnail.jpg", "thumbnail"));
+            cache.get(file("def", "other"));
+        }
+
+        cache.evict("abc");
+
+        assertThat(cache.getStats().getSize()).isEqualTo(1);
+    }
+
+    private static Resource file(String name, String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return name;
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.rvega.dreamshops.service.image;
+
+import com.rvega.dreamshops.exceptions.UploadLimitExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ImageUploadPipelineTest {
+    @TempDir
+    Path root;
+    private final ImageContentReferences references = mock(ImageContentReferences.class);
+    private ImageUploadPipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void storesFilesInTheirOrder() {
+        pipeline = pipeline(2);
+
+        List<ImageStorage.StoredContent> stored = pipeline.store(List.of(file("a.png", "first"), file("b.png", "second file")));
+
+        assertThat(stored).extracting(ImageStorage.StoredContent::size).containsExactly(5L, 11L);
+    }
+
+    @Test
+    void turnsAwayUploadsOverTheLimit() {
+        pipeline = pipeline(0);
+
+        assertThatThrownBy(() -> pipeline.store(List.of(file("a.png", "first"))))
+                .isInstanceOfSatisfying(UploadLimitExceededException.class,
+                        e -> assertThat(e.getRetryAfterInSeconds()).isEqualTo(7));
+    }
+
+    @Test
+    void deletesTheStoredFilesWhenAnotherFails() {
+        pipeline = pipeline(2);
+        MultipartFile broken = new MockMultipartFile("files", "broken.png", "image/png", new byte[0]) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                throw new IOException("connection reset");
+            }
+        };
+
+        assertThatThrownBy(() -> pipeline.store(List.of(file("a.png", "first"), broken)))
+                .isInstanceOf(UncheckedIOException.class);
+        // SHA-256 of "first"
+        verify(references).deleteUnreferenced(List.of("a7937b64b8caa58f03721bb6bacf5c78cb235febe0e70b1b84cd99541461a08e"));
+    }
+
+    private ImageUploadPipeline pipeline(int maxConcurrentRequests) {
+        return new ImageUploadPipeline(new LocalDiskImageStorage(root), references, 2, maxConcurrentRequests, 7);
+    }
+
+    private static MultipartFile file(String name, String content) {
+        return new MockMultipartFile("files", name, "image/png", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,112 @@
+package com.rvega.dreamshops.service.image;
+
+import com.rvega.dreamshops.enums.ImageSize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageVariantGeneratorTest {
+    @TempDir
+    Path root;
+    private LocalDiskImageStorage storage;
+    private ImageVariantGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalDiskImageStorage(root);
+        generator = new ImageVariantGenerator(storage, 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        generator.shutdown();
+    }
+
+    @Test
+    void resizesToFitTheSizeAndStoresTheVariant() throws IOException {
+        ImageStorage.StoredContent original = storage.store(new ByteArrayInputStream(photo(2000, 1000, "jpeg")));
+
+        Resource thumbnail = generator.getVariant(original.contentHash(), "image/jpeg", ImageSize.THUMBNAIL);
+
+        assertThat(thumbnail.getFilename()).isEqualTo(original.contentHash() + "-thumbnail.jpg");
+        BufferedImage decoded = read(thumbnail);
+        assertThat(decoded.getWidth()).isEqualTo(200);
+        assertThat(decoded.getHeight()).isEqualTo(100);
+        assertThat(thumbnail.contentLength() * 10).isLessThan(original.size());
+        assertThat(storage.loadVariant(original.contentHash(), "thumbnail.jpg").exists()).isTrue();
+    }
+
+    @Test
+    void keepsPngImagesAsPng() throws IOException {
+        ImageStorage.StoredContent original = storage.store(new ByteArrayInputStream(photo(600, 900, "png")));
+
+        Resource small = generator.getVariant(original.contentHash(), "image/png", ImageSize.SMALL);
+
+        assertThat(small.getFilename()).endsWith("-small.png");
+        assertThat(read(small).getHeight()).isEqualTo(480);
+        assertThat(read(small).getWidth()).isEqualTo(320);
+    }
+
+    @Test
+    void servesImagesThatFitOrCannotBeReadAsTheyAre() throws IOException {
+        ImageStorage.StoredContent fits = storage.store(new ByteArrayInputStream(photo(150, 100, "jpeg")));
+        ImageStorage.StoredContent unreadable = storage.store(new ByteArrayInputStream("not an image".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(generator.getVariant(fits.contentHash(), "image/jpeg", ImageSize.THUMBNAIL).getFilename())
+                .isEqualTo(fits.contentHash());
+        assertThat(generator.getVariant(unreadable.contentHash(), "image/webp", ImageSize.THUMBNAIL).getFilename())
+                .isEqualTo(unreadable.contentHash());
+    }
+
+    @Test
+    void deletingTheContentDeletesItsVariants() throws IOException {
+        ImageStorage.StoredContent original = storage.store(new ByteArrayInputStream(photo(2000, 1000, "jpeg")));
+        generator.getVariant(original.contentHash(), "image/jpeg", ImageSize.THUMBNAIL);
+
+        storage.delete(original.contentHash());
+
+        assertThat(storage.loadVariant(original.contentHash(), "thumbnail.jpg").exists()).isFalse();
+    }
+
+    /**
+     * Encodes an image of random noise, which compresses as badly as a detailed photo.
+     */
+    private static byte[] photo(int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, width / 2, height / 2);
+        graphics.dispose();
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, format, encoded);
+        return encoded.toByteArray();
+    }
+
+    private static BufferedImage read(Resource resource) throws IOException {
+        try (InputStream content = resource.getInputStream()) {
+            return ImageIO.read(content);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.rvega.dreamshops.service.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalDiskImageStorageTest {
+    // SHA-256 of "hello"
+    private static final String HELLO_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path root;
+    private LocalDiskImageStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalDiskImageStorage(root);
+    }
+
+    @Test
+    void storesContentByHashInShardedDirectories() throws IOException {
+        assertThat(storage.store(content("hello"))).isEqualTo(new ImageStorage.StoredContent(HELLO_HASH, 5));
+
+        Path file = root.resolve("2c").resolve("f2").resolve(HELLO_HASH);
+        assertThat(file).hasContent("hello");
+        Resource loaded = storage.load(HELLO_HASH);
+        assertThat(loaded.isFile()).isTrue();
+        assertThat(loaded.getFile().toPath()).isEqualTo(file);
+    }
+
+    @Test
+    void keepsOneCopyOfDuplicateContentAndNoTemporaryFiles() throws IOException {
+        storage.store(content("hello"));
+        storage.store(content("hello"));
+
+        try (var files = Files.walk(root)) {
+            assertThat(files.filter(Files::isRegularFile)).containsExactly(root.resolve("2c/f2/" + HELLO_HASH));
+        }
+    }
+
+    @Test
+    void deletesContent() throws IOException {
+        storage.store(content("hello"));
+
+        storage.delete(HELLO_HASH);
+        storage.delete(HELLO_HASH);
+
+        assertThat(storage.load(HELLO_HASH).exists()).isFalse();
+    }
+
+    @Test
+    void rejectsHashesThatAreNotSha256() {
+        assertThatThrownBy(() -> storage.load("../../etc/passwd")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> storage.load(HELLO_HASH.toUpperCase())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ByteArrayInputStream content(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
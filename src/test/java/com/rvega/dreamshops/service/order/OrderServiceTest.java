@@ -0,0 +1,100 @@
+package com.rvega.dreamshops.service.order;
+
+import com.rvega.dreamshops.model.Cart;
+import com.rvega.dreamshops.model.CartItem;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.model.Order;
+import com.rvega.dreamshops.model.Product;
+import com.rvega.dreamshops.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderServiceTest {
+    private static final int LINE_COUNT = 50;
+
+    @Autowired
+    private IOrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = transactionTemplate.execute(status -> {
+            User user = new User();
+            user.setFirstName("Order");
+            user.setLastName("Tester");
+            user.setEmail("order-tester@email.com");
+            user.setPassword("secret");
+            entityManager.persist(user);
+
+            Category category = new Category("order-test");
+            entityManager.persist(category);
+            Cart cart = new Cart();
+            cart.setUser(user);
+            for (int i = 0; i < LINE_COUNT; i++) {
+                Product product = new Product("item " + i, "acme", BigDecimal.TEN, 100, "An item", category);
+                entityManager.persist(product);
+                CartItem item = new CartItem();
+                item.setProduct(product);
+                item.setQuantity(2);
+                item.setUnitPrice(product.getPrice());
+                item.setTotalPrice();
+                cart.addItem(item);
+            }
+            entityManager.persist(cart);
+            return user.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createQuery("delete from OrderItem").executeUpdate();
+            entityManager.createQuery("delete from Order").executeUpdate();
+            entityManager.createQuery("delete from CartItem").executeUpdate();
+            entityManager.createQuery("delete from Cart").executeUpdate();
+            entityManager.createQuery("delete from Product").executeUpdate();
+            entityManager.createQuery("delete from Category c where c.name = 'order-test'").executeUpdate();
+            entityManager.createQuery("delete from User u where u.email = 'order-tester@email.com'").executeUpdate();
+        });
+    }
+
+    @Test
+    void placingOrderBatchesTheWritesOfEveryLine() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Order order = orderService.placeOrder(userId);
+
+        assertThat(order.getOrderItems()).hasSize(LINE_COUNT);
+        assertThat(order.getTotalAmount()).isEqualByComparingTo(BigDecimal.valueOf(20L * LINE_COUNT));
+        // Four reads: the cart, its user, its items with their products, and the items again for deleteAllByCartId.
+        // Four writes, each one JDBC batch whatever the number of lines: the order, the order items, the inventory
+        // updates and the cart item deletes. The ID blocks are fetched on their own connection and are not counted.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(8);
+    }
+}
@@ -0,0 +1,43 @@
+package com.rvega.dreamshops.service.product;
+
+import com.rvega.dreamshops.dto.ProductPageDto;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.model.Product;
+import com.rvega.dreamshops.request.ProductPageRequest;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCacheTest {
+    private final ProductCache productCache = new ProductCache(100, 10);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void invalidatesPagesWhoseFiltersDifferOnlyInCase() {
+        ProductQuery byBrand = ProductQuery.of(null, "ACME", null, new ProductPageRequest());
+        ProductQuery byCategory = ProductQuery.of("Phones", null, null, new ProductPageRequest());
+        ProductQuery otherBrand = ProductQuery.of(null, "globex", null, new ProductPageRequest());
+        List.of(byBrand, byCategory, otherBrand).forEach(this::getPage);
+
+        Product product = new Product("phone", "acme", BigDecimal.TEN, 1, "A phone", new Category("phones"));
+        product.setId(1L);
+        productCache.invalidate(product);
+
+        loads.set(0);
+        getPage(byBrand);
+        getPage(byCategory);
+        getPage(otherBrand);
+        assertThat(loads).hasValue(2);
+    }
+
+    private void getPage(ProductQuery query) {
+        productCache.getPage(query, q -> {
+            loads.incrementAndGet();
+            return new ProductPageDto(List.of(), null);
+        });
+    }
+}
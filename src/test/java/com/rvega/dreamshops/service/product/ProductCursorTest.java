@@ -0,0 +1,57 @@
+package com.rvega.dreamshops.service.product;
+
+import com.rvega.dreamshops.enums.ProductSort;
+import com.rvega.dreamshops.repository.projection.ProductView;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductCursorTest {
+
+    @Test
+    void resumesAfterTheIdOfTheLastProduct() {
+        String token = ProductCursor.encode(ProductSort.ID, product(42L, new BigDecimal("19.90")));
+
+        assertThat(ProductCursor.decode(token, ProductSort.ID)).isEqualTo(ScrollPosition.forward(Map.of("id", 42L)));
+    }
+
+    @Test
+    void resumesAfterThePriceAndIdOfTheLastProduct() {
+        String token = ProductCursor.encode(ProductSort.PRICE_DESC, product(42L, new BigDecimal("19.90")));
+
+        KeysetScrollPosition position = (KeysetScrollPosition) ProductCursor.decode(token, ProductSort.PRICE_DESC);
+        // The scale of the price is kept, so the range predicate compares with the stored value
+        assertThat(position.getKeys()).containsExactly(Map.entry("price", new BigDecimal("19.90")), Map.entry("id", 42L));
+        assertThat(position.scrollsForward()).isTrue();
+    }
+
+    @Test
+    void startsFromTheFirstPageWithoutAToken() {
+        assertThat(ProductCursor.decode(null, ProductSort.PRICE_ASC)).isEqualTo(ScrollPosition.keyset());
+        assertThat(ProductCursor.decode(" ", ProductSort.ID)).isEqualTo(ScrollPosition.keyset());
+    }
+
+    @Test
+    void rejectsTokensOfAnotherSortOrMalformedTokens() {
+        String token = ProductCursor.encode(ProductSort.PRICE_ASC, product(7L, BigDecimal.TEN));
+
+        assertThatThrownBy(() -> ProductCursor.decode(token, ProductSort.PRICE_DESC)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ProductCursor.decode(token, ProductSort.ID)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ProductCursor.decode("not a cursor!", ProductSort.ID)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ProductView product(Long id, BigDecimal price) {
+        ProductView product = mock(ProductView.class);
+        when(product.getId()).thenReturn(id);
+        when(product.getPrice()).thenReturn(price);
+        return product;
+    }
+}
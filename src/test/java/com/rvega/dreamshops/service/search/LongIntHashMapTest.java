@@ -0,0 +1,48 @@
+package com.rvega.dreamshops.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHashMapTest {
+
+    @Test
+    void behavesLikeAHashMapUnderRandomPutsAndRemoves() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // A small key range makes collisions, replacements and removals of present keys frequent
+            long key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertThat(map.remove(key)).isEqualTo(removed == null ? LongIntHashMap.NO_VALUE : removed);
+            } else {
+                int value = random.nextInt(Integer.MAX_VALUE);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = -100; key < 4_900; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, LongIntHashMap.NO_VALUE));
+        }
+    }
+
+    @Test
+    void forgetsEveryKeyOnClear() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (int i = 0; i < 1_000; i++) {
+            map.put(i * 31L, i);
+        }
+        map.clear();
+
+        assertThat(map.size()).isZero();
+        assertThat(map.get(31L)).isEqualTo(LongIntHashMap.NO_VALUE);
+    }
+}
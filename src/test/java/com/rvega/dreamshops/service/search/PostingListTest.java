@@ -0,0 +1,55 @@
+package com.rvega.dreamshops.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostingListTest {
+
+    @Test
+    void behavesLikeABitSetUnderRandomAddsAndRemoves() {
+        PostingList list = new PostingList();
+        BitSet expected = new BitSet();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // Out of order and repeated documents exercise the inserts in the middle and the no-ops
+            int doc = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                expected.clear(doc);
+                list.remove(doc);
+            } else {
+                expected.set(doc);
+                list.add(doc);
+            }
+        }
+
+        BitSet actual = new BitSet();
+        list.addTo(actual);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(list.countIn(expected)).isEqualTo(expected.cardinality());
+        for (int doc = 0; doc < 5_000; doc++) {
+            assertThat(list.contains(doc)).isEqualTo(expected.get(doc));
+        }
+    }
+
+    @Test
+    void shrinksOnceMostDocumentsAreRemoved() {
+        PostingList list = new PostingList();
+        for (int doc = 0; doc < 1_000; doc++) {
+            list.add(doc * 1_000);
+        }
+        for (int doc = 0; doc < 990; doc++) {
+            list.remove(doc * 1_000);
+        }
+
+        assertThat(list.sizeInBytes()).isLessThanOrEqualTo(40 * Integer.BYTES);
+        assertThat(list.contains(995_000)).isTrue();
+        for (int doc = 990; doc < 1_000; doc++) {
+            list.remove(doc * 1_000);
+        }
+        assertThat(list.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,151 @@
+package com.rvega.dreamshops.service.search;
+
+import com.rvega.dreamshops.enums.ProductFacet;
+import com.rvega.dreamshops.model.Category;
+import com.rvega.dreamshops.model.Product;
+import com.rvega.dreamshops.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ProductSearchIndexTest {
+    private ProductSearchIndex index;
+    private Category phones;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(mock(ProductRepository.class));
+        phones = category(1L, "Smart Phones");
+        index.index(product(1L, "Galaxy S24", "Samsung", "Android phone with a great camera", phones));
+        index.index(product(2L, "iPhone 15", "Apple", "The latest Apple phone", phones));
+        index.index(product(3L, "Camera Strap", "Acme", "Fits any galaxy or iphone case", category(2L, "Accessories")));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        assertThat(index.search("galaxy")).containsExactly(1L, 3L);
+        assertThat(index.search("camera")).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void requiresEveryTokenAndMatchesPrefixes() {
+        assertThat(index.search("apple iph")).containsExactly(2L);
+        assertThat(index.search("pho")).containsExactly(1L, 2L);
+        assertThat(index.search("samsung strap")).isEmpty();
+        assertThat(index.search("  ")).isEmpty();
+        // A single character is too short a prefix, it only matches itself
+        assertThat(index.search("s")).isEmpty();
+    }
+
+    @Test
+    void reflectsUpdatesRemovalsAndCategoryRenames() {
+        index.index(product(1L, "Pixel 9", "Google", "Android phone", phones));
+        assertThat(index.search("galaxy")).containsExactly(3L);
+        assertThat(index.search("pixel")).containsExactly(1L);
+
+        index.remove(3L);
+        assertThat(index.search("strap")).isEmpty();
+
+        index.updateCategory(category(1L, "Mobiles"));
+        assertThat(index.search("mobiles")).containsExactly(1L, 2L);
+        assertThat(index.search("smart")).isEmpty();
+
+        index.updateCategory(category(null, "Unsaved"));
+        assertThat(index.search("unsaved")).isEmpty();
+    }
+
+    @Test
+    void filtersByFacetsAndCountsEachFacetWithoutItsOwnFilter() {
+        Product pixel = product(4L, "Pixel 9", "Google", "Android phone", phones);
+        pixel.setPrice(new BigDecimal("799.00"));
+        index.index(pixel);
+
+        ProductSearchIndex.Result all = index.search(null, Map.of());
+        assertThat(all.productIds()).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(all.facets().get(ProductFacet.PRICE)).containsExactly(Map.entry("0-25", 3), Map.entry("500-1000", 1));
+
+        ProductSearchIndex.Result filtered = index.search("phone", Map.of(
+                ProductFacet.BRAND, List.of("Apple", "Google"),
+                ProductFacet.PRICE, List.of("0-25")));
+        assertThat(filtered.productIds()).containsExactly(2L);
+        assertThat(filtered.facets().get(ProductFacet.BRAND))
+                .containsExactly(Map.entry("Apple", 1), Map.entry("Samsung", 1));
+        assertThat(filtered.facets().get(ProductFacet.PRICE))
+                .containsExactly(Map.entry("0-25", 1), Map.entry("500-1000", 1));
+        assertThat(filtered.facets().get(ProductFacet.CATEGORY)).containsExactly(Map.entry("Smart Phones", 1));
+
+        index.updateCategory(category(1L, "Mobiles"));
+        index.remove(2L);
+        assertThat(index.search("", Map.of(ProductFacet.CATEGORY, List.of("Mobiles"))).productIds())
+                .containsExactly(1L, 4L);
+    }
+
+    @Test
+    void reusesTheDocumentsOfRemovedProducts() {
+        Category cases = category(3L, "Cases");
+        for (long id = 100; id < 2100; id++) {
+            index.index(product(id, "Case " + id, "Acme", "A case", cases));
+        }
+        for (long id = 100; id < 2100; id++) {
+            if (id % 10 != 0) {
+                index.remove(id);
+            }
+        }
+
+        assertThat(index.documentCount()).isLessThan(500);
+        assertThat(index.search("case 1230")).containsExactly(1230L);
+        ProductSearchIndex.Result remaining = index.search("", Map.of(ProductFacet.CATEGORY, List.of("Cases")));
+        assertThat(remaining.productIds()).hasSize(200).startsWith(100L, 110L, 120L).endsWith(2090L);
+        assertThat(remaining.facets().get(ProductFacet.BRAND)).containsOnly(Map.entry("Acme", 200));
+        assertThat(index.search("galaxy")).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void keepsThePostingsOfARealisticCatalogCompact() {
+        // 50k products over 2,000 brands and 50 categories, with a model number of their own and a
+        // description drawn from a 5,000-word vocabulary: most terms are rare and their documents far apart
+        Category[] categories = new Category[50];
+        for (int c = 0; c < categories.length; c++) {
+            categories[c] = category(100L + c, "Category " + c);
+        }
+        Random random = new Random(42);
+        long postingCount = 0;
+        for (long id = 100; id < 50_100; id++) {
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                description.append("word").append(random.nextInt(5_000)).append(' ');
+            }
+            Product product = product(id, "Item " + random.nextInt(20_000) + " m" + id, "Brand" + random.nextInt(2_000),
+                    description.toString(), categories[random.nextInt(categories.length)]);
+            index.index(product);
+            for (String text : List.of(product.getName(), product.getBrand(), product.getCategory().getName(), product.getDescription())) {
+                postingCount += ProductSearchIndex.tokenize(text).length;
+            }
+            postingCount += ProductFacet.values().length;
+        }
+
+        // Bitsets would take one bit per document number up to the highest of each of the ~77k terms, about 300MB
+        assertThat(index.postingBytes()).isLessThan(2 * Integer.BYTES * postingCount);
+        assertThat(index.search("m12345")).containsExactly(12345L);
+        assertThat(index.search("brand7 item")).isNotEmpty();
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name);
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, String name, String brand, String description, Category category) {
+        Product product = new Product(name, brand, BigDecimal.TEN, 1, description, category);
+        product.setId(id);
+        return product;
+    }
+}